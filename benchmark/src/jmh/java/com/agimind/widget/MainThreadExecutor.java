@@ -0,0 +1,95 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs benchmark threads of JMH on the thread of Robolectric test, which is the main thread of Android.
+ * JMH creates executor by its name (jmh.executor=CUSTOM), so tasks are handed over to test thread through static queue
+ */
+public class MainThreadExecutor extends AbstractExecutorService {
+	
+	private final static long POLL_MILLIS = 100;
+	
+	private final static BlockingQueue<Runnable> sTasks = new LinkedBlockingQueue<Runnable>();
+	
+	private volatile boolean mShutdown = false;
+	
+	public MainThreadExecutor(int maxThreads, String prefix) {
+		if(maxThreads > 1) {
+			throw new IllegalArgumentException("Views can be used only by main thread");
+		}
+	}
+	
+	/**
+	 * Runs tasks of all executors on calling thread, until JMH runner is finished
+	 * 
+	 * @param runner - thread on which JMH runner is working
+	 */
+	public static void runTasks(Thread runner) throws InterruptedException {
+		while(runner.isAlive() || !sTasks.isEmpty()) {
+			Runnable task = sTasks.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+			
+			if(task != null) {
+				task.run();
+			}
+		}
+	}
+	
+	@Override
+	public void execute(Runnable command) {
+		if(mShutdown) {
+			throw new IllegalStateException("Executor is shut down");
+		}
+		
+		sTasks.add(command);
+	}
+	
+	@Override
+	public void shutdown() {
+		mShutdown = true;
+	}
+	
+	@Override
+	public List<Runnable> shutdownNow() {
+		mShutdown = true;
+		
+		return Collections.emptyList();
+	}
+	
+	@Override
+	public boolean isShutdown() {
+		return mShutdown;
+	}
+	
+	@Override
+	public boolean isTerminated() {
+		return mShutdown;
+	}
+	
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) {
+		return mShutdown;
+	}
+
+}
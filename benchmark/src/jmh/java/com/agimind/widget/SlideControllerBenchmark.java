@@ -0,0 +1,108 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Gesture and settle animation of SlideController, as they are driven by SlideHolder
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SlideControllerBenchmark {
+	
+	/*
+	 * 60Hz frames
+	 */
+	private final static long FRAME_NANOS = 16666667L;
+	
+	/*
+	 * Move events per gesture (a second of 60Hz touch), each of them carries two historical samples
+	 */
+	private final static int MOVES = 60;
+	
+	/*
+	 * Release velocity of settle animation, pixels per second
+	 */
+	private final static float FLING_VELOCITY = 1000;
+	
+	@Param({"300", "600"})
+	public int menuWidth;
+	
+	private SlideController mController;
+	
+	@Setup
+	public void setUp() {
+		mController = new SlideController();
+		mController.setTouchSlop(16);
+		mController.layout(menuWidth, false);
+	}
+	
+	@Benchmark
+	public float moveStream() {
+		final float step = (float) menuWidth / MOVES;
+		long time = 0;
+		float x = 0;
+		
+		mController.onDown(x, time);
+		
+		for(int i = 0; i < MOVES; i++) {
+			mController.addHistoricalSample(x + step / 3, time + 5);
+			mController.addHistoricalSample(x + step * 2 / 3, time + 10);
+			
+			x += step;
+			time += 16;
+			
+			mController.onMove(x, time);
+		}
+		
+		mController.onUp(x, time);
+		
+		final float offset = mController.getOffset();
+		mController.setOpened(false);
+		
+		return offset;
+	}
+	
+	@Benchmark
+	public float settleAnimation() {
+		mController.startSlide();
+		mController.settle(FLING_VELOCITY);
+		
+		long frameTime = 0;
+		
+		while(mController.onAnimationFrame(frameTime) == SlideController.RESULT_OFFSET_CHANGED) {
+			frameTime += FRAME_NANOS;
+		}
+		
+		final float offset = mController.getOffset();
+		mController.setOpened(false);
+		
+		return offset;
+	}
+
+}
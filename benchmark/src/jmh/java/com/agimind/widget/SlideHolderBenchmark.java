@@ -0,0 +1,223 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewConfiguration;
+
+/**
+ * Hot paths of SlideHolder, attached to a window under Robolectric (see SlideHolderBenchmarkRunner).
+ * Drawing goes through real View code, but canvas doesn't rasterize anything, so numbers show the cost of Java code:
+ * they are good for comparison across commits, not for absolute timing
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SlideHolderBenchmark {
+	
+	/*
+	 * Move events per gesture (a second of 60Hz touch)
+	 */
+	private final static int MOVES = 60;
+	
+	/*
+	 * Frames after which settle animation is surely over
+	 */
+	private final static int MAX_FRAMES = 120;
+	
+	/**
+	 * Holder in closed state, complexity of its layouts is a number of rows, each of them with text and icon
+	 */
+	@State(Scope.Thread)
+	public static class Holder {
+		
+		@Param({"4", "16", "64"})
+		public int mainRows;
+		
+		@Param({"4", "16"})
+		public int menuRows;
+		
+		SlideHolderHarness harness;
+		SlideHolder holder;
+		
+		@Setup
+		public void setUp() {
+			harness = new SlideHolderHarness(menuRows, mainRows);
+			holder = harness.getHolder();
+			
+			/*
+			 * Each slide captures snapshot right when it starts, as without hardware acceleration
+			 */
+			holder.setRenderMode(SlideHolder.RENDER_MODE_SNAPSHOT);
+			holder.setSnapshotPrewarmEnabled(false);
+		}
+	
+	}
+	
+	/**
+	 * Holder which is closed again after each invocation
+	 */
+	@State(Scope.Thread)
+	public static class Closing extends Holder {
+		
+		@TearDown(Level.Invocation)
+		public void close() {
+			harness.frames(MAX_FRAMES);
+			
+			holder.closeImmediately();
+			harness.frame();
+		}
+	
+	}
+	
+	/**
+	 * Holder in the middle of slide, which was started by swipe from the edge
+	 */
+	@State(Scope.Thread)
+	public static class Sliding {
+		
+		Canvas canvas;
+		MotionEvent[] moves;
+		
+		private int mNext;
+		
+		@Setup
+		public void setUp(Holder h) {
+			final int width = h.holder.getWidth();
+			final int height = h.holder.getHeight();
+			final int menuWidth = h.holder.getChildAt(0).getWidth();
+			
+			final int slop = ViewConfiguration.get(h.holder.getContext()).getScaledTouchSlop();
+			
+			/*
+			 * Slide starts where finger passes touch slop, offset is counted from there
+			 */
+			final float startX = 2 + slop;
+			
+			h.harness.touch(MotionEvent.ACTION_DOWN, 1, height / 2);
+			h.harness.frame();
+			h.harness.touch(MotionEvent.ACTION_MOVE, startX, height / 2);
+			h.harness.frame();
+			h.harness.touch(MotionEvent.ACTION_MOVE, startX + menuWidth / 2, height / 2);
+			h.harness.frame();
+			
+			canvas = new Canvas(Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888));
+			
+			/*
+			 * Finger goes back and forth between a quarter and three quarters of menu
+			 */
+			final long downTime = SystemClock.uptimeMillis();
+			moves = new MotionEvent[MOVES];
+			
+			for(int i = 0; i < MOVES; i++) {
+				final float phase = (float) Math.abs(i - MOVES / 2) / (MOVES / 2);
+				moves[i] = MotionEvent.obtain(downTime, downTime + i * SlideHolderHarness.FRAME_MILLIS, MotionEvent.ACTION_MOVE,
+						startX + menuWidth / 4 + phase * menuWidth / 2, height / 2, 0);
+			}
+		}
+		
+		MotionEvent nextMove() {
+			MotionEvent ev = moves[mNext];
+			mNext = (mNext + 1) % MOVES;
+			
+			return ev;
+		}
+	
+	}
+	
+	/**
+	 * Holder which is opened and laid out
+	 */
+	@State(Scope.Thread)
+	public static class Opened {
+		
+		int widthSpec;
+		int heightSpec;
+		
+		@Setup
+		public void setUp(Holder h) {
+			h.holder.openImmediately();
+			h.harness.frame();
+			
+			widthSpec = View.MeasureSpec.makeMeasureSpec(h.holder.getWidth(), View.MeasureSpec.EXACTLY);
+			heightSpec = View.MeasureSpec.makeMeasureSpec(h.holder.getHeight(), View.MeasureSpec.EXACTLY);
+		}
+	
+	}
+	
+	/**
+	 * open(): initSlideMode() with capture of main layout snapshot
+	 */
+	@Benchmark
+	public boolean startSlide(Closing c) {
+		return c.holder.open();
+	}
+	
+	/**
+	 * dispatchDraw() of a frame in the middle of slide
+	 */
+	@Benchmark
+	public void drawSlide(Holder h, Sliding s) {
+		h.holder.dispatchDraw(s.canvas);
+	}
+	
+	/**
+	 * handleTouchEvent() of MOVE events which are dispatched to sliding holder
+	 */
+	@Benchmark
+	@OperationsPerInvocation(MOVES)
+	public boolean moveStream(Holder h, Sliding s) {
+		boolean handled = true;
+		
+		for(int i = 0; i < MOVES; i++) {
+			handled &= h.holder.dispatchTouchEvent(s.nextMove());
+		}
+		
+		return handled;
+	}
+	
+	/**
+	 * onMeasure() and onLayout() of a traversal which reaches opened holder (e.g. the one after slide is completed).
+	 * Its children are laid out again only if they have requested it
+	 */
+	@Benchmark
+	public void layout(Holder h, Opened o) {
+		SlideHolder holder = h.holder;
+		
+		holder.forceLayout();
+		holder.measure(o.widthSpec, o.heightSpec);
+		holder.layout(holder.getLeft(), holder.getTop(), holder.getRight(), holder.getBottom());
+	}
+
+}
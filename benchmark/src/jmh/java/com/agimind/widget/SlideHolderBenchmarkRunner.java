@@ -0,0 +1,74 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.robolectric.RobolectricTestRunner;
+
+/**
+ * Runs SlideHolderBenchmark inside of Robolectric: JMH works in the same process (there is no Android runtime to fork),
+ * and its benchmark thread is Robolectric's main thread (see MainThreadExecutor)
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SlideHolderBenchmarkRunner {
+	
+	@Test
+	public void run() throws Throwable {
+		final Options options = new OptionsBuilder()
+				.include(SlideHolderBenchmark.class.getName())
+				.forks(0)
+				.threads(1)
+				.warmupIterations(Integer.getInteger("jmh.warmupIterations", 2))
+				.warmupTime(TimeValue.seconds(1))
+				.measurementIterations(Integer.getInteger("jmh.iterations", 3))
+				.measurementTime(TimeValue.seconds(1))
+				.shouldFailOnError(true)
+				.resultFormat(ResultFormatType.JSON)
+				.result(System.getProperty("jmh.resultsFile", "holder-results.json"))
+				.build();
+		
+		final Throwable[] failure = new Throwable[1];
+		
+		Thread runner = new Thread(new Runnable() {
+			
+			@Override
+			public void run() {
+				try {
+					new Runner(options).run();
+				} catch (Throwable e) {
+					failure[0] = e;
+				}
+			}
+		
+		}, "JMH runner");
+		
+		runner.start();
+		MainThreadExecutor.runTasks(runner);
+		runner.join();
+		
+		if(failure[0] != null) {
+			throw failure[0];
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Refresh decisions which are made on every frame of slide in snapshot mode
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SnapshotRefreshSchedulerBenchmark {
+	
+	private final static long FRAME_NANOS = 16666667L;
+	
+	private final SnapshotRefreshScheduler mScheduler = new SnapshotRefreshScheduler();
+	private long mNow = 0;
+	
+	@Setup
+	public void setUp() {
+		mScheduler.setRefreshRate(4, 30);
+		mScheduler.reset(mNow);
+	}
+	
+	@Benchmark
+	public boolean dirtyFrame() {
+		mNow += FRAME_NANOS;
+		
+		mScheduler.onFrameDrawn(4000000L);
+		
+		final boolean refresh = mScheduler.shouldRefresh(mNow, true);
+		
+		if(refresh) {
+			mScheduler.onRefreshed(mNow, 6000000L);
+		}
+		
+		return refresh;
+	}
+
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+/**
+ * Gestures and settle animations are driven on every frame, so they shouldn't allocate anything
+ */
+public class SlideControllerAllocationTest {
+	
+	private final static long FRAME_NANOS = 16666667L;
+	
+	private final static int GESTURES = 100;
+	
+	@Test
+	public void scriptedGesturesDontAllocate() {
+		com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(bean.isThreadAllocatedMemorySupported());
+		
+		bean.setThreadAllocatedMemoryEnabled(true);
+		
+		final long thread = Thread.currentThread().getId();
+		
+		SlideController controller = new SlideController();
+		controller.setTouchSlop(16);
+		controller.layout(600, false);
+		
+		/*
+		 * Warm up, so class loading and lazy initialization are not counted
+		 */
+		runGesture(controller);
+		bean.getThreadAllocatedBytes(thread);
+		
+		final long before = bean.getThreadAllocatedBytes(thread);
+		
+		for(int i = 0; i < GESTURES; i++) {
+			runGesture(controller);
+		}
+		
+		final long allocated = bean.getThreadAllocatedBytes(thread) - before;
+		
+		assertEquals("bytes allocated by " + GESTURES + " gestures", 0, allocated);
+	}
+	
+	/*
+	 * Swipe which opens menu, settle animation, then swipe which closes it
+	 */
+	private static void runGesture(SlideController controller) {
+		long time = 0;
+		
+		controller.onDown(0, time);
+		
+		for(int x = 10; x <= 400; x += 10) {
+			time += 8;
+			
+			controller.addHistoricalSample(x - 5, time - 4);
+			controller.onMove(x, time);
+		}
+		
+		controller.onUp(400, time);
+		finishAnimation(controller);
+		
+		controller.onDown(500, time);
+		
+		for(int x = 490; x >= 100; x -= 10) {
+			time += 8;
+			
+			controller.onMove(x, time);
+		}
+		
+		controller.onUp(100, time);
+		finishAnimation(controller);
+	}
+	
+	private static void finishAnimation(SlideController controller) {
+		long frameTime = 0;
+		int result;
+		
+		do {
+			frameTime += FRAME_NANOS;
+			result = controller.onAnimationFrame(frameTime);
+		} while(result == SlideController.RESULT_OFFSET_CHANGED);
+		
+		controller.completeSlide(result == SlideController.RESULT_OPENED);
+	}
+
+}
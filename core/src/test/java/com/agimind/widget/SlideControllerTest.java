@@ -0,0 +1,195 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class SlideControllerTest {
+	
+	private final static int MENU_WIDTH = 600;
+	private final static int TOUCH_SLOP = 16;
+	
+	private final static long FRAME_NANOS = 16666667L;
+	
+	private SlideController mController;
+	
+	@Before
+	public void setUp() {
+		mController = new SlideController();
+		mController.setTouchSlop(TOUCH_SLOP);
+		mController.setFlingVelocity(400);
+		mController.layout(MENU_WIDTH, false);
+	}
+	
+	@Test
+	public void slowReleasePastHalfwayOpens() {
+		dragSlowly(0, 400);
+		
+		assertEquals(SlideController.RESULT_SETTLING, mController.onUp(400, 10000));
+		assertEquals(SlideController.RESULT_OPENED, runAnimation());
+		assertEquals(MENU_WIDTH, mController.getOffset(), 0);
+	}
+	
+	@Test
+	public void slowReleaseBeforeHalfwayCloses() {
+		dragSlowly(0, 200);
+		
+		assertEquals(SlideController.RESULT_SETTLING, mController.onUp(200, 10000));
+		assertEquals(SlideController.RESULT_CLOSED, runAnimation());
+		assertEquals(0, mController.getOffset(), 0);
+	}
+	
+	@Test
+	public void flingOpensBeforeHalfway() {
+		mController.onDown(0, 0);
+		
+		assertEquals(SlideController.RESULT_SLIDE_STARTED, mController.onMove(40, 8));
+		mController.onMove(80, 16);
+		mController.onMove(120, 24);
+		
+		/*
+		 * 5000 pixels per second, but only 80 pixels of 600 are passed
+		 */
+		assertEquals(SlideController.RESULT_SETTLING, mController.onUp(120, 24));
+		assertEquals(SlideController.RESULT_OPENED, runAnimation());
+	}
+	
+	@Test
+	public void flingBackClosesPastHalfway() {
+		dragSlowly(0, 500);
+		
+		mController.onMove(460, 16000);
+		mController.onMove(420, 16008);
+		
+		assertEquals(SlideController.RESULT_SETTLING, mController.onUp(380, 16016));
+		assertEquals(SlideController.RESULT_CLOSED, runAnimation());
+	}
+	
+	@Test
+	public void transitionCompletesOnce() {
+		dragSlowly(0, 400);
+		mController.onUp(400, 10000);
+		
+		int completions = 0;
+		long frameTime = 0;
+		
+		for(int i = 0; i < 1000; i++) {
+			frameTime += FRAME_NANOS;
+			
+			final int result = mController.onAnimationFrame(frameTime);
+			
+			if(result == SlideController.RESULT_OPENED || result == SlideController.RESULT_CLOSED) {
+				completions++;
+			}
+		}
+		
+		assertEquals(1, completions);
+		assertFalse(mController.isAnimating());
+		assertEquals(SlideController.RESULT_NONE, mController.finishAnimation());
+	}
+	
+	@Test
+	public void finishedAnimationCompletesOnce() {
+		dragSlowly(0, 400);
+		mController.onUp(400, 10000);
+		
+		assertEquals(SlideController.RESULT_OPENED, mController.finishAnimation());
+		assertEquals(MENU_WIDTH, mController.getOffset(), 0);
+		
+		assertEquals(SlideController.RESULT_NONE, mController.finishAnimation());
+		assertEquals(SlideController.RESULT_NONE, mController.onAnimationFrame(FRAME_NANOS));
+		
+		mController.completeSlide(true);
+		
+		assertTrue(mController.isOpened());
+	}
+	
+	@Test
+	public void verticalFlingChangesNothing() {
+		/*
+		 * Vertical fling in main layout doesn't move pointer horizontally,
+		 * so holder gets nothing to redraw
+		 */
+		mController.onDown(300, 0);
+		
+		for(long time = 8; time <= 400; time += 8) {
+			assertEquals(SlideController.RESULT_NONE, mController.onMove(300, time));
+		}
+		
+		assertEquals(SlideController.RESULT_NONE, mController.onUp(300, 400));
+		assertEquals(SlideController.MODE_READY, mController.getMode());
+		assertEquals(0, mController.getOffset(), 0);
+	}
+	
+	@Test
+	public void movesWithinSlopChangeNothing() {
+		mController.onDown(100, 0);
+		
+		assertEquals(SlideController.RESULT_NONE, mController.onMove(100 + TOUCH_SLOP, 8));
+		assertEquals(SlideController.RESULT_NONE, mController.onMove(100 - TOUCH_SLOP, 16));
+		assertEquals(0, mController.getOffset(), 0);
+	}
+	
+	@Test
+	public void movesAwayFromMenuChangeNothing() {
+		mController.onDown(300, 0);
+		
+		assertEquals(SlideController.RESULT_NONE, mController.onMove(200, 8));
+		assertEquals(SlideController.RESULT_NONE, mController.onMove(100, 16));
+		
+		mController.setOpened(true);
+		mController.onDown(300, 100);
+		
+		assertEquals(SlideController.RESULT_NONE, mController.onMove(400, 108));
+		assertEquals(MENU_WIDTH, mController.getOffset(), 0);
+	}
+	
+	/*
+	 * Moves by 10 pixels every 100 milliseconds, so release velocity is below fling velocity
+	 */
+	private void dragSlowly(float from, float to) {
+		long time = 0;
+		
+		mController.onDown(from, time);
+		
+		for(float x = from + 10; x <= to; x += 10) {
+			time += 100;
+			
+			mController.onMove(x, time);
+		}
+		
+		assertEquals(SlideController.MODE_SLIDE, mController.getMode());
+	}
+	
+	private int runAnimation() {
+		long frameTime = 0;
+		int result;
+		
+		do {
+			frameTime += FRAME_NANOS;
+			result = mController.onAnimationFrame(frameTime);
+		} while(result == SlideController.RESULT_OFFSET_CHANGED);
+		
+		return result;
+	}
+
+}
@@ -0,0 +1,313 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.util.ReflectionHelpers;
+
+import android.os.SystemClock;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * Touch dispatch, slide and its animation don't allocate anything in steady state.
+ * Robolectric allocates whenever a callback is posted to Choreographer (device takes it from a pool),
+ * so each frame of animation is allowed to cost exactly as much as posting the next one
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SlideHolderAllocationTest {
+	
+	private final static long FRAME_NANOS = 16666667L;
+	
+	private final static int GESTURES = 20;
+	
+	/*
+	 * Gestures which are run first, so class loading and lazy initialization are not counted
+	 */
+	private final static int WARMUP = 3;
+	
+	/*
+	 * JIT may deoptimize code in the middle of measurement, which allocates objects it had optimized away,
+	 * so measurement is repeated a few times
+	 */
+	private final static int ATTEMPTS = 3;
+	private final static int MAX_FRAMES = 120;
+	
+	private com.sun.management.ThreadMXBean mBean;
+	private long mThread;
+	
+	private SlideHolderHarness mHarness;
+	private CountingSlideHolder mHolder;
+	
+	private MotionEvent[] mSlide;
+	private MotionEvent[] mTap;
+	
+	private long mFrameCallbackCost;
+	private long mFrameTime;
+	
+	private long mStart;
+	private long mAllocated;
+	private int mFrameCallbacks;
+	
+	@Before
+	public void setUp() {
+		mBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		assumeTrue(mBean.isThreadAllocatedMemorySupported());
+		
+		mBean.setThreadAllocatedMemoryEnabled(true);
+		mThread = Thread.currentThread().getId();
+		
+		/*
+		 * Children which don't allocate on their own, so everything counted is allocated by holder
+		 */
+		View menu = new View(SlideHolderHarness.getContext());
+		View main = new View(SlideHolderHarness.getContext());
+		
+		final int menuWidth = SlideHolderHarness.getContext().getResources().getDisplayMetrics().widthPixels * 2 / 3;
+		
+		mHarness = new SlideHolderHarness(menu, menuWidth, main);
+		mHolder = mHarness.getHolder();
+		
+		/*
+		 * Automatic mode depends on timing of drawing, so it's fixed to the one which captures main layout on each slide
+		 */
+		mHolder.setRenderMode(SlideHolder.RENDER_MODE_SNAPSHOT);
+		
+		final int y = mHolder.getHeight() / 2;
+		final long time = SystemClock.uptimeMillis();
+		
+		/*
+		 * Swipe from the edge to three quarters of menu, which starts slide and cancels touch of main layout
+		 */
+		mSlide = new MotionEvent[menuWidth * 3 / 4 / 10 + 1];
+		mSlide[0] = MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, 1, y, 0);
+		
+		for(int i = 1; i < mSlide.length - 1; i++) {
+			mSlide[i] = MotionEvent.obtain(time, time + i * 8, MotionEvent.ACTION_MOVE, i * 10, y, 0);
+		}
+		
+		mSlide[mSlide.length - 1] = MotionEvent.obtain(time, time + mSlide.length * 8, MotionEvent.ACTION_UP, menuWidth * 3 / 4, y, 0);
+		
+		/*
+		 * Tap inside of opened menu, which goes through hit test
+		 */
+		mTap = new MotionEvent[] {
+				MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, menuWidth / 2, y, 0),
+				MotionEvent.obtain(time, time + 8, MotionEvent.ACTION_MOVE, menuWidth / 2 + 2, y, 0),
+				MotionEvent.obtain(time, time + 16, MotionEvent.ACTION_UP, menuWidth / 2 + 2, y, 0)
+		};
+		
+		mFrameCallbackCost = measureFrameCallbackCost();
+	}
+	
+	@Test
+	public void touchesOfOpenedHolderDontAllocate() {
+		mHolder.openImmediately();
+		mHarness.frames(MAX_FRAMES);
+		
+		for(int i = 0; i < WARMUP; i++) {
+			dispatch(mTap);
+		}
+		
+		for(int attempt = 0; attempt < ATTEMPTS; attempt++) {
+			mAllocated = 0;
+			
+			for(int i = 0; i < GESTURES; i++) {
+				startCounting();
+				dispatch(mTap);
+				stopCounting();
+			}
+			
+			if(mAllocated == 0) {
+				break;
+			}
+		}
+		
+		assertTrue(mHolder.isOpened());
+		assertEquals("bytes allocated by " + GESTURES + " taps", 0, mAllocated);
+	}
+	
+	@Test
+	public void slideDoesntAllocate() {
+		for(int i = 0; i < WARMUP; i++) {
+			slide();
+		}
+		
+		for(int attempt = 0; attempt < ATTEMPTS; attempt++) {
+			mAllocated = 0;
+			mFrameCallbacks = 0;
+			
+			for(int i = 0; i < GESTURES; i++) {
+				slide();
+			}
+			
+			if(mAllocated == mFrameCallbacks * mFrameCallbackCost) {
+				break;
+			}
+		}
+		
+		assertEquals("bytes allocated by " + GESTURES + " slides, besides " + mFrameCallbacks + " frame callbacks",
+				mFrameCallbacks * mFrameCallbackCost, mAllocated);
+	}
+	
+	@Test
+	public void openAndCloseDontAllocate() {
+		for(int i = 0; i < WARMUP; i++) {
+			openAndClose();
+		}
+		
+		for(int attempt = 0; attempt < ATTEMPTS; attempt++) {
+			mAllocated = 0;
+			mFrameCallbacks = 0;
+			
+			for(int i = 0; i < GESTURES; i++) {
+				openAndClose();
+			}
+			
+			if(mAllocated == mFrameCallbacks * mFrameCallbackCost) {
+				break;
+			}
+		}
+		
+		assertEquals("bytes allocated by " + GESTURES + " open() and close(), besides " + mFrameCallbacks + " frame callbacks",
+				mFrameCallbacks * mFrameCallbackCost, mAllocated);
+	}
+	
+	/*
+	 * Swipe which opens the menu and its settle animation, then closing of menu
+	 */
+	private void slide() {
+		startCounting();
+		dispatch(mSlide);
+		stopCounting();
+		
+		/*
+		 * Release starts settle animation
+		 */
+		mFrameCallbacks++;
+		
+		animate();
+		assertTrue(mHolder.isOpened());
+		
+		mHolder.closeImmediately();
+		mHarness.frames(MAX_FRAMES);
+	}
+	
+	private void openAndClose() {
+		startCounting();
+		assertTrue(mHolder.open());
+		stopCounting();
+		
+		mFrameCallbacks++;
+		
+		animate();
+		assertTrue(mHolder.isOpened());
+		
+		startCounting();
+		assertTrue(mHolder.close());
+		stopCounting();
+		
+		mFrameCallbacks++;
+		
+		animate();
+		assertFalse(mHolder.isOpened());
+	}
+	
+	/*
+	 * Runs frames of settle animation by calling holder's frame callback, so only holder's work is counted.
+	 * Every frame but the last one posts the next frame, the last one completes the slide
+	 */
+	private void animate() {
+		Object animator = ReflectionHelpers.getField(mHolder, "mSlideAnimator");
+		Choreographer.FrameCallback callback = ReflectionHelpers.getField(animator, "mFrameCallback");
+		
+		int frames = 0;
+		
+		while(ReflectionHelpers.<Boolean>getField(animator, "mRunning")) {
+			assertTrue("animation isn't completed in " + MAX_FRAMES + " frames", ++frames < MAX_FRAMES);
+			
+			/*
+			 * Frame is run here instead of Choreographer
+			 */
+			Choreographer.getInstance().removeFrameCallback(callback);
+			mFrameTime += FRAME_NANOS;
+			
+			startCounting();
+			callback.doFrame(mFrameTime);
+			stopCounting();
+			
+			if(ReflectionHelpers.<Boolean>getField(animator, "mRunning")) {
+				mFrameCallbacks++;
+			}
+		}
+		
+		mHarness.frames(MAX_FRAMES);
+	}
+	
+	private void dispatch(MotionEvent[] events) {
+		for(MotionEvent ev : events) {
+			mHolder.dispatchTouchEvent(ev);
+		}
+	}
+	
+	private long measureFrameCallbackCost() {
+		Choreographer.FrameCallback callback = new Choreographer.FrameCallback() {
+			
+			@Override
+			public void doFrame(long frameTimeNanos) {
+			}
+		
+		};
+		
+		long cost = 0;
+		
+		for(int i = 0; i < 2; i++) {
+			final long before = mBean.getThreadAllocatedBytes(mThread);
+			Choreographer.getInstance().postFrameCallback(callback);
+			cost = mBean.getThreadAllocatedBytes(mThread) - before;
+			
+			Choreographer.getInstance().removeFrameCallback(callback);
+		}
+		
+		return cost;
+	}
+	
+	/*
+	 * Window traversal is scheduled beforehand, as Robolectric allocates when it's posted
+	 */
+	private void startCounting() {
+		mHarness.getActivity().getWindow().getDecorView().invalidate();
+		
+		mStart = mBean.getThreadAllocatedBytes(mThread);
+	}
+	
+	private void stopCounting() {
+		mAllocated += mBean.getThreadAllocatedBytes(mThread) - mStart;
+	}
+
+}
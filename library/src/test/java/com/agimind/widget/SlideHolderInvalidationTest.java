@@ -0,0 +1,122 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.MotionEvent;
+import android.view.ViewConfiguration;
+import android.widget.ArrayAdapter;
+import android.widget.ListView;
+
+/**
+ * Holder invalidates itself only when slide offset changes, so scrolling of main layout doesn't redraw it on every move
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SlideHolderInvalidationTest {
+	
+	private final static int ITEMS = 200;
+	private final static int MOVES = 8;
+	private final static int MAX_FRAMES = 300;
+	
+	private SlideHolderHarness mHarness;
+	private CountingSlideHolder mHolder;
+	private ListView mList;
+	
+	@Before
+	public void setUp() {
+		Context context = SlideHolderHarness.getContext();
+		
+		String[] items = new String[ITEMS];
+		
+		for(int i = 0; i < ITEMS; i++) {
+			items[i] = "Item " + i;
+		}
+		
+		mList = new ListView(context);
+		mList.setAdapter(new ArrayAdapter<String>(context, android.R.layout.simple_list_item_1, items));
+		
+		mHarness = new SlideHolderHarness(SlideHolderHarness.createLayout(context, 4),
+				context.getResources().getDisplayMetrics().widthPixels * 2 / 3, mList);
+		mHolder = mHarness.getHolder();
+	}
+	
+	@Test
+	public void listFlingDoesntInvalidateHolder() {
+		assertListFlingDoesntInvalidateHolder(mHolder.getWidth() / 2);
+	}
+	
+	/*
+	 * Gesture from the edge is tracked by holder, until it turns out to be vertical
+	 */
+	@Test
+	public void listFlingFromEdgeDoesntInvalidateHolder() {
+		assertListFlingDoesntInvalidateHolder(1);
+	}
+	
+	@Test
+	public void slideInvalidatesChangedRegionOnly() {
+		final int width = mHolder.getWidth();
+		final int height = mHolder.getHeight();
+		final int slop = ViewConfiguration.get(mHolder.getContext()).getScaledTouchSlop();
+		
+		float x = 2 + slop;
+		
+		mHarness.touch(MotionEvent.ACTION_DOWN, 1, height / 2);
+		mHarness.frame();
+		mHarness.touch(MotionEvent.ACTION_MOVE, x, height / 2);
+		mHarness.frame();
+		
+		for(int i = 0; i < MOVES; i++) {
+			final int offset = mHolder.getMenuOffset();
+			
+			mHolder.resetCounts();
+			x += 10;
+			mHarness.touch(MotionEvent.ACTION_MOVE, x, height / 2);
+			
+			assertTrue("offset changed", mHolder.getMenuOffset() > offset);
+			assertEquals("invalidations of move " + i, 1, mHolder.getInvalidateCount());
+			assertEquals("invalidated area of move " + i, new Rect(offset, 0, width, height), mHolder.getInvalidatedRect());
+			
+			mHarness.frame();
+		}
+	}
+	
+	private void assertListFlingDoesntInvalidateHolder(float x) {
+		final int height = mHolder.getHeight();
+		
+		mHarness.drag(x, height * 3 / 4, x, height / 4, MOVES);
+		final int position = mList.getFirstVisiblePosition();
+		
+		final int frames = MOVES + 1 + mHarness.frames(MAX_FRAMES);
+		
+		assertTrue("list is scrolled", position > 0);
+		assertTrue("list is flung", mList.getFirstVisiblePosition() > position);
+		assertEquals("invalidations of holder", 0, mHolder.getInvalidateCount());
+		assertTrue("holder is drawn " + mHolder.getDrawCount() + " times in " + frames + " frames",
+				mHolder.getDrawCount() <= frames);
+	}
+
+}
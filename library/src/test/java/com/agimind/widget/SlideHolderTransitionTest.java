@@ -0,0 +1,150 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import android.view.MotionEvent;
+
+/**
+ * Each open or close costs at most one layout and one draw per frame, and nothing once it's completed
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SlideHolderTransitionTest {
+	
+	private final static int MAX_FRAMES = 120;
+	private final static int IDLE_FRAMES = 5;
+	
+	private SlideHolderHarness mHarness;
+	private CountingSlideHolder mHolder;
+	
+	@Before
+	public void setUp() {
+		mHarness = new SlideHolderHarness(4, 16);
+		mHolder = mHarness.getHolder();
+	}
+	
+	@Test
+	public void open() {
+		assertTrue(mHolder.open());
+		assertTransition("open()");
+		assertTrue(mHolder.isOpened());
+	}
+	
+	@Test
+	public void close() {
+		mHolder.openImmediately();
+		mHarness.frames(MAX_FRAMES);
+		
+		assertTrue(mHolder.close());
+		assertTransition("close()");
+		assertFalse(mHolder.isOpened());
+	}
+	
+	@Test
+	public void openImmediately() {
+		assertTrue(mHolder.openImmediately());
+		assertTransition("openImmediately()");
+		assertTrue(mHolder.isOpened());
+	}
+	
+	@Test
+	public void closeImmediately() {
+		mHolder.openImmediately();
+		mHarness.frames(MAX_FRAMES);
+		
+		assertTrue(mHolder.closeImmediately());
+		assertTransition("closeImmediately()");
+		assertFalse(mHolder.isOpened());
+	}
+	
+	@Test
+	public void swipe() {
+		final int menuWidth = mHolder.getChildAt(0).getWidth();
+		final int y = mHolder.getHeight() / 2;
+		
+		mHarness.touch(MotionEvent.ACTION_DOWN, 1, y);
+		
+		int frame = 0;
+		
+		for(int x = 10; x < menuWidth * 3 / 4; x += 10) {
+			mHarness.touch(MotionEvent.ACTION_MOVE, x, y);
+			runFrame("swipe", ++frame);
+		}
+		
+		mHarness.touch(MotionEvent.ACTION_UP, menuWidth * 3 / 4, y);
+		assertTransition("swipe");
+		assertTrue(mHolder.isOpened());
+	}
+	
+	/*
+	 * Runs frames until transition is completed, then checks that nothing else happens
+	 */
+	private void assertTransition(String transition) {
+		int frame = 0;
+		int layouts = 0;
+		int completionLayouts = 0;
+		int completionDraws = 0;
+		
+		while(runFrame(transition, ++frame)) {
+			assertTrue(transition + " isn't completed in " + MAX_FRAMES + " frames", frame < MAX_FRAMES);
+			
+			layouts += mHolder.getLayoutCount();
+			
+			if(mHolder.getDrawCount() > 0) {
+				completionLayouts = mHolder.getLayoutCount();
+				completionDraws = mHolder.getDrawCount();
+			}
+		}
+		
+		assertEquals(transition + ": layouts in the last drawn frame", 1, completionLayouts);
+		assertEquals(transition + ": draws in the last drawn frame", 1, completionDraws);
+		assertTrue(transition + ": " + layouts + " layouts", layouts <= 2);
+		
+		for(int i = 0; i < IDLE_FRAMES; i++) {
+			mHolder.resetCounts();
+			mHarness.frame();
+			
+			assertEquals(transition + ": layouts after completion", 0, mHolder.getLayoutCount());
+			assertEquals(transition + ": draws after completion", 0, mHolder.getDrawCount());
+		}
+	}
+	
+	/*
+	 * @return false if nothing was scheduled or invalidated for this frame
+	 */
+	private boolean runFrame(String transition, int frame) {
+		mHolder.resetCounts();
+		
+		if(mHarness.frames(1) == 0) {
+			return false;
+		}
+		
+		assertTrue(transition + ": layouts in frame " + frame, mHolder.getLayoutCount() <= 1);
+		assertTrue(transition + ": draws in frame " + frame, mHolder.getDrawCount() <= 1);
+		
+		return true;
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+
+/**
+ * SlideHolder which counts its own layouts, draws and invalidations
+ */
+public class CountingSlideHolder extends SlideHolder {
+	
+	private int mLayoutCount;
+	private int mDrawCount;
+	private int mInvalidateCount;
+	
+	private final Rect mInvalidatedRect = new Rect();
+	
+	public CountingSlideHolder(Context context) {
+		super(context);
+	}
+	
+	public int getLayoutCount() {
+		return mLayoutCount;
+	}
+	
+	public int getDrawCount() {
+		return mDrawCount;
+	}
+	
+	/**
+	 * 
+	 * @return how many times holder invalidated itself. Invalidations of its children are not counted
+	 */
+	public int getInvalidateCount() {
+		return mInvalidateCount;
+	}
+	
+	/**
+	 * 
+	 * @return area of the last invalidation of holder itself
+	 */
+	public Rect getInvalidatedRect() {
+		return mInvalidatedRect;
+	}
+	
+	public void resetCounts() {
+		mLayoutCount = 0;
+		mDrawCount = 0;
+		mInvalidateCount = 0;
+		mInvalidatedRect.setEmpty();
+	}
+	
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		mLayoutCount++;
+		
+		super.onLayout(changed, l, t, r, b);
+	}
+	
+	@Override
+	protected void dispatchDraw(Canvas canvas) {
+		mDrawCount++;
+		
+		super.dispatchDraw(canvas);
+	}
+	
+	@Override
+	public void invalidate() {
+		mInvalidateCount++;
+		mInvalidatedRect.set(0, 0, getWidth(), getHeight());
+		
+		super.invalidate();
+	}
+	
+	@Override
+	@SuppressWarnings("deprecation")
+	public void invalidate(Rect dirty) {
+		mInvalidateCount++;
+		mInvalidatedRect.set(dirty);
+		
+		super.invalidate(dirty);
+	}
+	
+	@Override
+	@SuppressWarnings("deprecation")
+	public void invalidate(int l, int t, int r, int b) {
+		mInvalidateCount++;
+		mInvalidatedRect.set(l, t, r, b);
+		
+		super.invalidate(l, t, r, b);
+	}
+
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import org.robolectric.annotation.Implements;
+
+import android.view.View;
+
+/**
+ * Robolectric's shadow of View draws only background of a view. This one replaces it and implements nothing,
+ * so real View code runs: children, snapshots and effects are drawn as on device
+ */
+@Implements(View.class)
+public class ShadowDrawingView {
+}
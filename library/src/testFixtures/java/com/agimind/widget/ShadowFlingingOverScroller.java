@@ -0,0 +1,29 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import org.robolectric.annotation.Implements;
+
+import android.widget.OverScroller;
+
+/**
+ * Robolectric's shadow of OverScroller finishes fling right away. This one replaces it and implements nothing,
+ * so lists are flung frame by frame as on device
+ */
+@Implements(OverScroller.class)
+public class ShadowFlingingOverScroller {
+}
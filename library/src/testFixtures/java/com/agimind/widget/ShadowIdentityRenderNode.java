@@ -0,0 +1,39 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowRenderNode;
+
+import android.view.RenderNode;
+
+/**
+ * Robolectric's shadow of RenderNode reports every view as transformed, so hit tests and invalidations
+ * go through matrix math. This one knows when view isn't transformed, as native code does
+ */
+@Implements(value = RenderNode.class, isInAndroidSdk = false)
+public class ShadowIdentityRenderNode extends ShadowRenderNode {
+	
+	@Implementation
+	public boolean hasIdentityMatrix() {
+		return getTranslationX() == 0 && getTranslationY() == 0
+				&& getScaleX() == 1 && getScaleY() == 1
+				&& getRotation() == 0 && getRotationX() == 0 && getRotationY() == 0;
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowBitmap;
+
+import android.graphics.Bitmap;
+
+/**
+ * Bitmap which keeps its allocation when reconfigured, so SnapshotBitmapPool can reuse it as on a device
+ * (otherwise allocation size is 0 and every snapshot gets a new bitmap)
+ */
+@Implements(Bitmap.class)
+public class ShadowPooledBitmap extends ShadowBitmap {
+	
+	private int mAllocationByteCount = -1;
+	
+	@Implementation
+	public int getAllocationByteCount() {
+		return mAllocationByteCount < 0 ? getByteCount() : mAllocationByteCount;
+	}
+	
+	@Implementation
+	public void reconfigure(int width, int height, Bitmap.Config config) {
+		final int allocation = getAllocationByteCount();
+		
+		if(width * height * SnapshotBitmapPool.getBytesPerPixel(config) > allocation) {
+			throw new IllegalArgumentException("Bitmap not large enough to support new configuration");
+		}
+		
+		mAllocationByteCount = allocation;
+		
+		setWidth(width);
+		setHeight(height);
+		setConfig(config);
+	}
+
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import org.robolectric.annotation.Implementation;
+import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowCanvas;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+/**
+ * Canvas which doesn't keep history of drawing, so frames can be drawn over and over without growing memory.
+ * It counts saves, because real Canvas can't restore state which native part never saved
+ */
+@Implements(Canvas.class)
+public class ShadowQuietCanvas extends ShadowCanvas {
+	
+	private int mSaveCount = 1;
+	
+	@Implementation
+	public int save() {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int save(int saveFlags) {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int saveLayer(RectF bounds, Paint paint, int saveFlags) {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int saveLayer(RectF bounds, Paint paint) {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int saveLayer(float left, float top, float right, float bottom, Paint paint, int saveFlags) {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int saveLayer(float left, float top, float right, float bottom, Paint paint) {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int saveLayerAlpha(RectF bounds, int alpha, int saveFlags) {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int saveLayerAlpha(RectF bounds, int alpha) {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int saveLayerAlpha(float left, float top, float right, float bottom, int alpha, int saveFlags) {
+		return mSaveCount++;
+	}
+	
+	@Implementation
+	public int saveLayerAlpha(float left, float top, float right, float bottom, int alpha) {
+		return mSaveCount++;
+	}
+	
+	@Override
+	@Implementation
+	public void restore() {
+		if(mSaveCount > 1) {
+			mSaveCount--;
+		}
+	}
+	
+	@Implementation
+	public void restoreToCount(int saveCount) {
+		mSaveCount = Math.max(1, Math.min(mSaveCount, saveCount));
+	}
+	
+	@Implementation
+	public int getSaveCount() {
+		return mSaveCount;
+	}
+	
+	@Override
+	@Implementation
+	public void appendDescription(String s) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawText(String text, float x, float y, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawPaint(Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawColor(int color) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawBitmap(Bitmap bitmap, float left, float top, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawBitmap(Bitmap bitmap, Rect src, Rect dst, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawBitmap(Bitmap bitmap, Rect src, RectF dst, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawBitmap(Bitmap bitmap, Matrix matrix, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawPath(Path path, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawCircle(float cx, float cy, float radius, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawArc(RectF oval, float startAngle, float sweepAngle, boolean useCenter, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawLine(float startX, float startY, float stopX, float stopY, Paint paint) {
+	}
+	
+	@Override
+	@Implementation
+	public void drawOval(RectF oval, Paint paint) {
+	}
+
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import java.util.concurrent.TimeUnit;
+
+import org.robolectric.Robolectric;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowChoreographer;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.SystemClock;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+/**
+ * Runs SlideHolder attached to a window of Robolectric activity.
+ * Robolectric has no surface to draw into, so window is drawn by harness itself: once per frame, if anything was invalidated, like ViewRootImpl does.
+ * Main looper is paused, so animation and layout happen only when {@link #frame()} is called
+ */
+public class SlideHolderHarness {
+	
+	public final static long FRAME_MILLIS = 16;
+	
+	private final Activity mActivity;
+	private final HostLayout mHost;
+	private final CountingSlideHolder mHolder;
+	
+	private final Bitmap mBitmap;
+	private final Canvas mCanvas;
+	
+	private long mDownTime;
+	
+	/**
+	 * 
+	 * @param menu - menu of the holder
+	 * @param menuWidth - width of the menu, in pixels
+	 * @param main - main layout of the holder
+	 */
+	public SlideHolderHarness(View menu, int menuWidth, View main) {
+		/*
+		 * Window is set up as usual, by all the callbacks at once. Looper may have been left paused by previous harness
+		 */
+		ShadowChoreographer.setPostCallbackDelay(0);
+		ShadowChoreographer.setPostFrameCallbackDelay(0);
+		ShadowLooper.unPauseMainLooper();
+		
+		mActivity = Robolectric.setupActivity(Activity.class);
+		
+		mHolder = new CountingSlideHolder(mActivity);
+		mHolder.addView(menu, new ViewGroup.LayoutParams(menuWidth, ViewGroup.LayoutParams.MATCH_PARENT));
+		mHolder.addView(main, new ViewGroup.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+		
+		mHost = new HostLayout(mActivity);
+		mHost.addView(mHolder);
+		mActivity.setContentView(mHost);
+		ShadowLooper.idleMainLooper();
+		
+		/*
+		 * Callbacks posted to Choreographer run in the next frame, not right away
+		 */
+		ShadowChoreographer.setPostCallbackDelay((int) FRAME_MILLIS);
+		ShadowChoreographer.setPostFrameCallbackDelay((int) FRAME_MILLIS);
+		ShadowLooper.pauseMainLooper();
+		
+		DisplayMetrics metrics = mActivity.getResources().getDisplayMetrics();
+		mBitmap = Bitmap.createBitmap(metrics.widthPixels, metrics.heightPixels, Bitmap.Config.ARGB_8888);
+		mCanvas = new Canvas(mBitmap);
+		
+		/*
+		 * First layout and draw of the window
+		 */
+		frame();
+		mHolder.resetCounts();
+	}
+	
+	/**
+	 * 
+	 * @param menuComplexity - number of rows in the menu, see {@link #createLayout(Context, int)}
+	 * @param mainComplexity - number of rows in main layout
+	 */
+	public SlideHolderHarness(int menuComplexity, int mainComplexity) {
+		this(createLayout(getContext(), menuComplexity), getContext().getResources().getDisplayMetrics().widthPixels * 2 / 3,
+				createLayout(getContext(), mainComplexity));
+	}
+	
+	public static Context getContext() {
+		return RuntimeEnvironment.application;
+	}
+	
+	/**
+	 * 
+	 * @param rows - each row is a horizontal layout with text and icon
+	 * @return opaque vertical layout
+	 */
+	public static View createLayout(Context context, int rows) {
+		LinearLayout layout = new LinearLayout(context);
+		layout.setOrientation(LinearLayout.VERTICAL);
+		layout.setBackgroundColor(0xFFFFFFFF);
+		
+		for(int i = 0; i < rows; i++) {
+			LinearLayout row = new LinearLayout(context);
+			row.setOrientation(LinearLayout.HORIZONTAL);
+			
+			View icon = new View(context);
+			icon.setBackgroundColor(0xFF0000FF);
+			row.addView(icon, new LinearLayout.LayoutParams(16, 16));
+			
+			TextView text = new TextView(context);
+			text.setText("Row " + i);
+			row.addView(text, new LinearLayout.LayoutParams(0, ViewGroup.LayoutParams.WRAP_CONTENT, 1));
+			
+			layout.addView(row, new LinearLayout.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT));
+		}
+		
+		return layout;
+	}
+	
+	public CountingSlideHolder getHolder() {
+		return mHolder;
+	}
+	
+	public Activity getActivity() {
+		return mActivity;
+	}
+	
+	/**
+	 * Runs one frame: animation callbacks, layout if it was requested and draw if anything was invalidated
+	 */
+	public void frame() {
+		Robolectric.getForegroundThreadScheduler().advanceBy(FRAME_MILLIS, TimeUnit.MILLISECONDS);
+		
+		/*
+		 * Traversal which was scheduled by callbacks of this frame runs in the same frame, as on device
+		 */
+		ViewParent root = mActivity.getWindow().getDecorView().getParent();
+		
+		if(ReflectionHelpers.<Boolean>getField(root, "mTraversalScheduled")) {
+			ReflectionHelpers.callInstanceMethod(root, "doTraversal");
+		}
+		
+		if(mHost.mDirty) {
+			mHost.mDirty = false;
+			
+			mActivity.getWindow().getDecorView().draw(mCanvas);
+		}
+	}
+	
+	/**
+	 * Runs frames until nothing is scheduled anymore
+	 * 
+	 * @return number of frames
+	 */
+	public int frames(int maxFrames) {
+		int count = 0;
+		
+		while(count < maxFrames && (mHost.mDirty || Robolectric.getForegroundThreadScheduler().size() > 0)) {
+			frame();
+			count++;
+		}
+		
+		return count;
+	}
+	
+	/**
+	 * Dispatches touch event to the holder
+	 * 
+	 * @param x - in coordinates of the holder
+	 * @param y - in coordinates of the holder
+	 */
+	public boolean touch(int action, float x, float y) {
+		final long time = SystemClock.uptimeMillis();
+		
+		if(action == MotionEvent.ACTION_DOWN) {
+			mDownTime = time;
+		}
+		
+		MotionEvent ev = MotionEvent.obtain(mDownTime, time, action, x, y, 0);
+		boolean handled = mHolder.dispatchTouchEvent(ev);
+		ev.recycle();
+		
+		return handled;
+	}
+	
+	/**
+	 * Drags from one point to another, one move per frame
+	 */
+	public void drag(float fromX, float fromY, float toX, float toY, int moves) {
+		touch(MotionEvent.ACTION_DOWN, fromX, fromY);
+		frame();
+		
+		for(int i = 1; i <= moves; i++) {
+			touch(MotionEvent.ACTION_MOVE, fromX + (toX - fromX) * i / moves, fromY + (toY - fromY) * i / moves);
+			frame();
+		}
+		
+		touch(MotionEvent.ACTION_UP, toX, toY);
+	}
+	
+	/*
+	 * Notices any invalidation inside of the window, so harness knows when to draw
+	 */
+	private static class HostLayout extends FrameLayout {
+		
+		private boolean mDirty = true;
+		
+		HostLayout(Context context) {
+			super(context);
+		}
+		
+		@Override
+		@SuppressWarnings("deprecation")
+		public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+			mDirty = true;
+			
+			return super.invalidateChildInParent(location, dirty);
+		}
+		
+		@Override
+		public void requestLayout() {
+			mDirty = true;
+			
+			super.requestLayout();
+		}
+	
+	}
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+
+/**
+ * Background thread which is shared by all SlideHolders for snapshot rasterization.
+ * It's started on first use.
+ */
+final class BackgroundWorker {
+	
+	private static HandlerThread sThread;
+	private static Handler sHandler;
+	private static Handler sMainHandler;
+	
+	private BackgroundWorker() {}
+	
+	public static synchronized Handler getHandler() {
+		if(sHandler == null) {
+			sThread = new HandlerThread("SlideHolderWorker", Process.THREAD_PRIORITY_DISPLAY);
+			sThread.start();
+			
+			sHandler = new Handler(sThread.getLooper());
+		}
+		
+		return sHandler;
+	}
+	
+	/**
+	 *
+	 * @return handler of UI thread. Unlike View.post(), it works from any thread even if view is not attached
+	 */
+	public static synchronized Handler getMainHandler() {
+		if(sMainHandler == null) {
+			sMainHandler = new Handler(Looper.getMainLooper());
+		}
+		
+		return sMainHandler;
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import android.graphics.Camera;
+import android.graphics.Matrix;
+
+/**
+ * Built-in reveal effects for SlideHolder.setRevealEffect()
+ */
+public final class RevealEffects {
+	
+	private RevealEffects() {}
+	
+	/**
+	 * Menu moves slower than main layout, as if it was placed deeper
+	 */
+	public static class Parallax implements SlideHolder.RevealEffect {
+		
+		private final float mFactor;
+		
+		/**
+		 *
+		 * @param factor - part of menu width which is hidden when menu starts to open. 0 - no effect, 1 - menu moves together with main layout
+		 */
+		public Parallax(float factor) {
+			mFactor = factor;
+		}
+		
+		@Override
+		public void transformMain(float fraction, int direction, int width, int height, Matrix matrix) {}
+		
+		@Override
+		public void transformMenu(float fraction, int direction, int width, int height, Matrix matrix) {
+			matrix.setTranslate(-direction * width * mFactor * (1 - fraction), 0);
+		}
+	
+	}
+	
+	/**
+	 * Main layout shrinks towards its far edge while menu opens
+	 */
+	public static class Scale implements SlideHolder.RevealEffect {
+		
+		private final float mMinScale;
+		
+		/**
+		 *
+		 * @param minScale - scale of main layout when menu is opened
+		 */
+		public Scale(float minScale) {
+			mMinScale = minScale;
+		}
+		
+		@Override
+		public void transformMain(float fraction, int direction, int width, int height, Matrix matrix) {
+			final float scale = 1 - (1 - mMinScale) * fraction;
+			final float pivotX = direction == SlideHolder.DIRECTION_LEFT ? 0 : width;
+			
+			matrix.setScale(scale, scale, pivotX, height / 2f);
+		}
+		
+		@Override
+		public void transformMenu(float fraction, int direction, int width, int height, Matrix matrix) {}
+	
+	}
+	
+	/**
+	 * Main layout turns away from menu around its near edge
+	 */
+	public static class Rotate implements SlideHolder.RevealEffect {
+		
+		private final float mMaxDegrees;
+		private final Camera mCamera = new Camera();
+		
+		/**
+		 *
+		 * @param maxDegrees - angle of main layout when menu is opened
+		 */
+		public Rotate(float maxDegrees) {
+			mMaxDegrees = maxDegrees;
+		}
+		
+		@Override
+		public void transformMain(float fraction, int direction, int width, int height, Matrix matrix) {
+			final float pivotX = direction == SlideHolder.DIRECTION_LEFT ? 0 : width;
+			final float pivotY = height / 2f;
+			
+			mCamera.save();
+			mCamera.rotateY(-direction * mMaxDegrees * fraction);
+			mCamera.getMatrix(matrix);
+			mCamera.restore();
+			
+			matrix.preTranslate(-pivotX, -pivotY);
+			matrix.postTranslate(pivotX, pivotY);
+		}
+		
+		@Override
+		public void transformMenu(float fraction, int direction, int width, int height, Matrix matrix) {}
+	
+	}
+
+}
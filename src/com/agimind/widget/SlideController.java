@@ -0,0 +1,400 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+/**
+ * State machine of the slide: modes, offset of main layout, gestures and settle animation.
+ *
+ * Doesn't depend on Android framework - it works only with pointer positions, timestamps and sizes,
+ * so it can be tested and benchmarked on JVM and reused by other renderers. SlideHolder is just an
+ * adapter which feeds it with events and renders its offset.
+ */
+public class SlideController {
+	
+	public final static int DIRECTION_LEFT = 1;
+	public final static int DIRECTION_RIGHT = -1;
+	
+	public final static int MODE_READY = 0;
+	public final static int MODE_SLIDE = 1;
+	public final static int MODE_FINISHED = 2;
+	
+	/**
+	 * Event is not related to slide
+	 */
+	public final static int RESULT_NONE = 0;
+	/**
+	 * Event is consumed, but nothing changed
+	 */
+	public final static int RESULT_TRACKING = 1;
+	/**
+	 * Slide was started, renderer should prepare for it
+	 */
+	public final static int RESULT_SLIDE_STARTED = 2;
+	/**
+	 * Offset was changed
+	 */
+	public final static int RESULT_OFFSET_CHANGED = 3;
+	/**
+	 * Settle animation was started, renderer should deliver frames to onAnimationFrame()
+	 */
+	public final static int RESULT_SETTLING = 4;
+	/**
+	 * Settle animation reached opened position
+	 */
+	public final static int RESULT_OPENED = 5;
+	/**
+	 * Settle animation reached closed position
+	 */
+	public final static int RESULT_CLOSED = 6;
+	
+	private int mMode = MODE_READY;
+	private int mDirection = DIRECTION_LEFT;
+	
+	private int mMenuWidth = 0;
+	private int mLeftMenuWidth = 0;
+	private int mRightMenuWidth = 0;
+	private boolean mBothDirections = false;
+	
+	private float mOffset = 0;
+	private int mStartOffset;
+	private int mEndOffset;
+	
+	private float mHistoricalX = 0;
+	
+	private float mTouchSlop = 50;
+	private float mFlingVelocity = 400;
+	private float mSpeed = 0.6f;
+	
+	private final VelocityEstimator mVelocityEstimator = new VelocityEstimator();
+	
+	private boolean mAnimating = false;
+	private float mAnimationStart;
+	private float mAnimationEnd;
+	private long mAnimationDurationNanos;
+	private long mAnimationStartNanos;
+	private boolean mAnimationOpening;
+	
+	public int getMode() {
+		return mMode;
+	}
+	
+	public int getDirection() {
+		return mDirection;
+	}
+	
+	/**
+	 *
+	 * @param direction - direction in which menu opens. Can be: DIRECTION_LEFT, DIRECTION_RIGHT
+	 */
+	public void setDirection(int direction) {
+		mDirection = direction;
+		mMenuWidth = direction == DIRECTION_LEFT ? mLeftMenuWidth : mRightMenuWidth;
+	}
+	
+	/**
+	 *
+	 * @param both - if true, there are menus on both sides and direction is chosen by the first move of closed slide
+	 */
+	public void setBothDirections(boolean both) {
+		mBothDirections = both;
+	}
+	
+	public boolean isBothDirections() {
+		return mBothDirections;
+	}
+	
+	public float getOffset() {
+		return mOffset;
+	}
+	
+	public int getMenuWidth() {
+		return mMenuWidth;
+	}
+	
+	/**
+	 *
+	 * @param slop - distance in pixels which pointer should pass before slide starts
+	 */
+	public void setTouchSlop(float slop) {
+		mTouchSlop = slop;
+	}
+	
+	/**
+	 *
+	 * @param velocity - minimum release velocity (pixels per second) which finishes slide in the direction of gesture
+	 */
+	public void setFlingVelocity(float velocity) {
+		mFlingVelocity = velocity;
+	}
+	
+	/**
+	 *
+	 * @param speed - speed of settle animation, pixels per millisecond
+	 */
+	public void setSpeed(float speed) {
+		mSpeed = speed;
+	}
+	
+	public boolean isOpened() {
+		return mMode == MODE_FINISHED;
+	}
+	
+	public boolean isAnimating() {
+		return mAnimating;
+	}
+	
+	/**
+	 * Updates resting offset after layout
+	 *
+	 * @param menuWidth - width of menu
+	 * @param alwaysOpened - if true, menu is always shown next to main layout
+	 */
+	public void layout(int menuWidth, boolean alwaysOpened) {
+		layout(menuWidth, menuWidth, alwaysOpened);
+	}
+	
+	/**
+	 * Updates resting offset after layout
+	 *
+	 * @param leftMenuWidth - width of menu which is opened in DIRECTION_LEFT
+	 * @param rightMenuWidth - width of menu which is opened in DIRECTION_RIGHT
+	 * @param alwaysOpened - if true, menu is always shown next to main layout
+	 */
+	public void layout(int leftMenuWidth, int rightMenuWidth, boolean alwaysOpened) {
+		mLeftMenuWidth = leftMenuWidth;
+		mRightMenuWidth = rightMenuWidth;
+		
+		final int menuWidth = mDirection == DIRECTION_LEFT ? leftMenuWidth : rightMenuWidth;
+		mMenuWidth = menuWidth;
+		
+		if(alwaysOpened) {
+			if(mDirection == DIRECTION_LEFT) {
+				mOffset = menuWidth;
+			} else {
+				mOffset = 0;
+			}
+		} else if(mMode == MODE_FINISHED) {
+			mOffset = mDirection*menuWidth;
+		} else if(mMode == MODE_READY) {
+			mOffset = 0;
+		}
+	}
+	
+	public int onDown(float x, long timeMillis) {
+		mHistoricalX = x;
+		
+		mVelocityEstimator.clear();
+		mVelocityEstimator.addSample(timeMillis, x);
+		
+		return RESULT_TRACKING;
+	}
+	
+	/**
+	 * Should be called for every batched sample before onMove() or onUp()
+	 */
+	public void addHistoricalSample(float x, long timeMillis) {
+		mVelocityEstimator.addSample(timeMillis, x);
+	}
+	
+	public int onMove(float x, long timeMillis) {
+		mVelocityEstimator.addSample(timeMillis, x);
+		
+		final float diff = x - mHistoricalX;
+		
+		if(mBothDirections && mMode == MODE_READY && Math.abs(diff) > mTouchSlop) {
+			/*
+			 * Menu which is pulled out is the one gesture moves from
+			 */
+			setDirection(diff > 0 ? DIRECTION_LEFT : DIRECTION_RIGHT);
+		}
+		
+		if((mDirection*diff > mTouchSlop && mMode == MODE_READY) || (mDirection*diff < -mTouchSlop && mMode == MODE_FINISHED)) {
+			mHistoricalX = x;
+			
+			startSlide();
+			
+			return RESULT_SLIDE_STARTED;
+		} else if(mMode == MODE_SLIDE && !mAnimating) {
+			mOffset += diff;
+			
+			mHistoricalX = x;
+			
+			if(!isSlideAllowed()) {
+				return settle(mVelocityEstimator.getVelocity());
+			}
+			
+			return RESULT_OFFSET_CHANGED;
+		}
+		
+		return RESULT_NONE;
+	}
+	
+	public int onUp(float x, long timeMillis) {
+		mVelocityEstimator.addSample(timeMillis, x);
+		
+		if(mMode == MODE_SLIDE && !mAnimating) {
+			return settle(mVelocityEstimator.getVelocity());
+		}
+		
+		return RESULT_NONE;
+	}
+	
+	/**
+	 * Switches to slide mode from current resting state
+	 */
+	public void startSlide() {
+		if(mMode == MODE_READY) {
+			mStartOffset = 0;
+			mEndOffset = mDirection*mMenuWidth;
+		} else {
+			mStartOffset = mDirection*mMenuWidth;
+			mEndOffset = 0;
+		}
+		
+		mOffset = mStartOffset;
+		mMode = MODE_SLIDE;
+	}
+	
+	/**
+	 * Starts animation to opened or closed position, depending on current offset and release velocity
+	 *
+	 * @param velocity - velocity of pointer at the moment of release, pixels per second
+	 */
+	public int settle(float velocity) {
+		final int openedOffset = getOpenedOffset();
+		
+		boolean open;
+		if(Math.abs(velocity) >= mFlingVelocity) {
+			/*
+			 * Fling wins over position
+			 */
+			open = mDirection*velocity > 0;
+		} else {
+			open = mDirection*mOffset > mDirection*openedOffset/2;
+		}
+		
+		if(mDirection*mOffset > mDirection*openedOffset) mOffset = openedOffset;
+		if(mDirection*mOffset < 0) mOffset = 0;
+		
+		startAnimation(open ? openedOffset : 0, velocity, open);
+		
+		return RESULT_SETTLING;
+	}
+	
+	/**
+	 * Starts animation from current offset to opened or closed position. Should be called in slide mode
+	 */
+	public int animateTo(boolean open) {
+		startAnimation(open ? getOpenedOffset() : 0, 0, open);
+		
+		return RESULT_SETTLING;
+	}
+	
+	/**
+	 *
+	 * @param frameTimeNanos - time of the frame. First frame after settle() or animateTo() is the start of animation
+	 * @return RESULT_OFFSET_CHANGED while animation is running, RESULT_OPENED or RESULT_CLOSED on its last frame
+	 */
+	public int onAnimationFrame(long frameTimeNanos) {
+		if(!mAnimating) {
+			return RESULT_NONE;
+		}
+		
+		if(mAnimationStartNanos < 0) {
+			mAnimationStartNanos = frameTimeNanos;
+		}
+		
+		final long elapsed = frameTimeNanos - mAnimationStartNanos;
+		
+		float input = elapsed >= mAnimationDurationNanos ? 1 : (float) elapsed / mAnimationDurationNanos;
+		float interpolated = 1 - (1 - input) * (1 - input);
+		
+		mOffset = (mAnimationEnd - mAnimationStart) * interpolated + mAnimationStart;
+		
+		if(input < 1) {
+			return RESULT_OFFSET_CHANGED;
+		}
+		
+		mAnimating = false;
+		
+		return mAnimationOpening ? RESULT_OPENED : RESULT_CLOSED;
+	}
+	
+	/**
+	 * Jumps to the end of settle animation
+	 *
+	 * @return RESULT_OPENED or RESULT_CLOSED, or RESULT_NONE if there was no animation
+	 */
+	public int finishAnimation() {
+		if(!mAnimating) {
+			return RESULT_NONE;
+		}
+		
+		mOffset = mAnimationEnd;
+		mAnimating = false;
+		
+		return mAnimationOpening ? RESULT_OPENED : RESULT_CLOSED;
+	}
+	
+	/**
+	 * Switches to resting state after slide
+	 */
+	public void completeSlide(boolean opened) {
+		mMode = opened ? MODE_FINISHED : MODE_READY;
+		mOffset = opened ? mDirection*mMenuWidth : 0;
+	}
+	
+	/**
+	 * Switches to resting state immediately, without slide
+	 */
+	public void setOpened(boolean opened) {
+		mAnimating = false;
+		
+		completeSlide(opened);
+	}
+	
+	private int getOpenedOffset() {
+		return mDirection*mEndOffset > 0 ? mEndOffset : mStartOffset;
+	}
+	
+	private void startAnimation(float to, float velocity, boolean opening) {
+		final float from = mOffset;
+		final float distance = Math.abs(to - from);
+		float duration = distance / mSpeed;
+		
+		if(velocity*(to - from) > 0) {
+			/*
+			 * Decelerate interpolation starts with twice the average speed,
+			 * so this duration makes animation continue with velocity of the finger
+			 */
+			duration = Math.min(duration, 2*distance*1000 / Math.abs(velocity));
+		}
+		
+		mAnimationStart = from;
+		mAnimationEnd = to;
+		mAnimationDurationNanos = (long) (duration * 1000000L);
+		mAnimationStartNanos = -1;
+		mAnimationOpening = opening;
+		mAnimating = true;
+	}
+	
+	private boolean isSlideAllowed() {
+		return (mDirection*mEndOffset > 0 && mDirection*mOffset < mDirection*mEndOffset && mDirection*mOffset >= mDirection*mStartOffset)
+				|| (mEndOffset == 0 && mDirection*mOffset > mDirection*mEndOffset && mDirection*mOffset <= mDirection*mStartOffset);
+	}
+
+}
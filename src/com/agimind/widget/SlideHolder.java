@@ -16,54 +16,213 @@
 
 package com.agimind.widget;
 
-import java.util.LinkedList;
-import java.util.Queue;
-
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Matrix;
 import android.graphics.Paint;
+import android.graphics.Picture;
 import android.graphics.PorterDuff.Mode;
 import android.graphics.Rect;
 import android.graphics.Region.Op;
+import android.graphics.Shader;
 import android.os.Build;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.view.MotionEvent;
+import android.view.Choreographer;
+import android.view.LayoutInflater;
 import android.view.View;
-import android.view.animation.Animation;
-import android.view.animation.DecelerateInterpolator;
-import android.view.animation.Transformation;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+import android.view.WindowManager;
 import android.widget.FrameLayout;
 
 public class SlideHolder extends FrameLayout {
 
-	public final static int DIRECTION_LEFT = 1;
-	public final static int DIRECTION_RIGHT = -1;
+	public final static int DIRECTION_LEFT = SlideController.DIRECTION_LEFT;
+	public final static int DIRECTION_RIGHT = SlideController.DIRECTION_RIGHT;
+	
+	protected final static int MODE_READY = SlideController.MODE_READY;
+	protected final static int MODE_SLIDE = SlideController.MODE_SLIDE;
+	protected final static int MODE_FINISHED = SlideController.MODE_FINISHED;
+	
+	/**
+	 * Render mode is chosen automatically, depending on device and measured drawing costs
+	 */
+	public final static int RENDER_MODE_AUTO = 0;
+	/**
+	 * Main layout is rasterized into software bitmap which is drawn during slide
+	 */
+	public final static int RENDER_MODE_SNAPSHOT = 1;
+	/**
+	 * Main layout is put on hardware layer and just translated during slide
+	 */
+	public final static int RENDER_MODE_HARDWARE_LAYER = 2;
+	/**
+	 * Main layout is drawn as is on every frame of slide
+	 */
+	public final static int RENDER_MODE_LIVE = 3;
+	
+	/**
+	 * Snapshot is drawn with filtering and dithering
+	 */
+	public final static int QUALITY_FULL = 0;
+	/**
+	 * Snapshot is drawn without filtering and dithering
+	 */
+	public final static int QUALITY_NO_FILTER = 1;
+	/**
+	 * Snapshot is captured at half resolution and scaled up while drawing
+	 */
+	public final static int QUALITY_HALF_RESOLUTION = 2;
+	/**
+	 * Snapshot is captured at half resolution into 16 bit bitmap
+	 */
+	public final static int QUALITY_LOW_FORMAT = 3;
+	
+	/*
+	 * If main layout can be drawn faster than that, there is no need
+	 * to keep it in cache
+	 */
+	private final static long LIVE_DRAW_BUDGET_NANOS = 4000000L;
+	
+	/*
+	 * Amount of janky frames after which quality of snapshot goes one level down
+	 */
+	private final static int JANK_FRAMES_PER_QUALITY_STEP = 2;
 	
-	protected final static int MODE_READY = 0;
-	protected final static int MODE_SLIDE = 1;
-	protected final static int MODE_FINISHED = 2;
+	/*
+	 * Default width of the edge (in dp) where slide can start. Touch which starts there will probably open menu,
+	 * so snapshot and menu are prepared before slide starts
+	 */
+	private final static int SLIDE_EDGE = 48;
+	
+	/*
+	 * State which is requested before SlideHolder is laid out
+	 */
+	private final static int PENDING_NONE = 0;
+	private final static int PENDING_OPENED = 1;
+	private final static int PENDING_CLOSED = 2;
+	
+	/*
+	 * Main layout should be still for that long before snapshot is refreshed in advance
+	 */
+	private final static long PREWARM_QUIET_MILLIS = 500;
 	
 	private Bitmap mCachedBitmap;
 	private Canvas mCachedCanvas;
 	private Paint mCachedPaint;
 	private View mMenuView;
 	
-	private int mMode = MODE_READY;
-	private int mDirection = DIRECTION_LEFT;
-	private float mSpeed = 0.6f;
+	/*
+	 * All the slide logic lives there, we just render it
+	 */
+	private final SlideController mController = new SlideController();
+	
+	private float mFlingVelocity = 400;
+	private float mDensity = 1;
 	
-	private int mOffset = 0;
-	private int mStartOffset;
-	private int mEndOffset;
+	private int mRenderMode = RENDER_MODE_AUTO;
+	private int mActiveRenderMode = RENDER_MODE_SNAPSHOT;
+	private int mSavedLayerType = View.LAYER_TYPE_NONE;
+	private long mCaptureNanos = 0;
+	private long mLiveDrawNanos = 0;
+	
+	private Bitmap.Config mSnapshotConfig = null;
+	private Bitmap.Config mActiveSnapshotConfig = Bitmap.Config.ARGB_8888;
+	private int mSnapshotMemoryBudget = 0;
+	
+	private boolean mAdaptiveQuality = true;
+	private int mQualityLevel = QUALITY_FULL;
+	private int mSnapshotScale = 1;
+	private int mJankFrames = 0;
+	private boolean mSnapshotStale = false;
+	private int mCachedBitmapScale = 1;
+	
+	private boolean mAsyncSnapshot = false;
+	private SnapshotRasterizer mRasterizer;
+	
+	/*
+	 * Layouts of menus which are not inflated yet, and inflated menus which wait for the end of slide.
+	 * Index 0 is for left menu, 1 is for right one
+	 */
+	private final int[] mMenuLayouts = new int[2];
+	private final boolean[] mMenuInflating = new boolean[2];
+	private final View[] mInflatedMenus = new View[2];
+	private boolean mMenuInflationScheduled = false;
+	
+	private boolean mPrewarmEnabled = true;
+	private boolean mSnapshotFresh = false;
+	private boolean mPrewarmedOnDown = false;
+	private boolean mPrewarmPending = false;
+	private long mContentChangedMillis = 0;
+	private float mDownX;
+	private float mDownY;
+	private int mDownEdgeDirection = 0;
+	private int mScrollSlop;
+	
+	private final Rect mDirtyRect = new Rect();
+	private int mRecapturedPixels = 0;
+	private long mTotalRecapturedPixels = 0;
+	
+	private final SnapshotRefreshScheduler mRefreshScheduler = new SnapshotRefreshScheduler();
+	
+	private boolean mMenuCacheEnabled = false;
+	private Bitmap mMenuBitmap;
+	private Canvas mMenuCanvas;
+	private boolean mMenuDirty = false;
+	private final Rect mInvalidRect = new Rect();
+	private float mInvalidatedOffset = 0;
+	
+	private int mMenuWidthSpec = -1;
+	private int mMenuHeightSpec = -1;
 	
 	private boolean mEnabled = true;
 	private boolean mInterceptTouch = true;
+	private float mEdgeSize = SLIDE_EDGE;
+	private boolean mSlideFromAnywhere = false;
+	private boolean mTrackGesture = false;
 	private boolean mAlwaysOpened = false;
 	private boolean mDispatchWhenOpened = false;
 	
-	private Queue<Runnable> mWhenReady = new LinkedList<Runnable>();
+	/*
+	 * Direction chosen by setDirection(). Swipe may open menu of other side, but holder comes back to this one when it's closed
+	 */
+	private int mDirection = DIRECTION_LEFT;
+	
+	private int mPendingState = PENDING_NONE;
+	private boolean mPendingAnimated = false;
+	
+	/*
+	 * Objects which are reused on every touch event and slide,
+	 * so we don't allocate anything there
+	 */
+	private final Rect mHitRect = new Rect();
+	private final SlideAnimator mSlideAnimator = new SlideAnimator();
+	
+	private long mFrameIntervalNanos = 1000000000L / 60;
+	private int mDroppedFrames = 0;
+	
+	private SlideMetrics mMetrics;
+	private boolean mCancelSent = false;
+	
+	private RevealEffect mRevealEffect;
+	private final Matrix mRevealMatrix = new Matrix();
+	
+	private int mScrimColor = Color.TRANSPARENT;
+	private float mShadowWidth = 0;
+	private int mShadowColor = Color.TRANSPARENT;
+	private Paint mShadowPaint;
+	private Shader mShadowShader;
+	private int mShadowShaderWidth = 0;
+	private int mShadowShaderColor = Color.TRANSPARENT;
 	
 	private OnSlideListener mListener;
 	
@@ -91,6 +250,47 @@ public class SlideHolder extends FrameLayout {
 					| Paint.FILTER_BITMAP_FLAG
 					| Paint.DITHER_FLAG
 				);
+		
+		mCachedCanvas = new Canvas();
+		
+		mDensity = getResources().getDisplayMetrics().density;
+		mScrollSlop = ViewConfiguration.get(getContext()).getScaledTouchSlop();
+		mController.setTouchSlop(mScrollSlop);
+		mController.setFlingVelocity(mFlingVelocity*mDensity);
+	}
+	
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		
+		mFrameIntervalNanos = queryFrameIntervalNanos();
+	}
+	
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		
+		/*
+		 * Frames won't come anymore, so there is no point to wait for them
+		 */
+		mSlideAnimator.finish();
+		
+		if(mRasterizer != null) {
+			mRasterizer.discard();
+		}
+		
+		if(mPrewarmPending) {
+			removeCallbacks(mPrewarmQuietRunnable);
+			Looper.myQueue().removeIdleHandler(mPrewarmIdleHandler);
+			mPrewarmPending = false;
+		}
+		
+		/*
+		 * Let other SlideHolders reuse our snapshot
+		 */
+		if(mController.getMode() != MODE_SLIDE) {
+			releaseCachedBitmap();
+		}
 	}
 	
 	@Override
@@ -105,12 +305,28 @@ public class SlideHolder extends FrameLayout {
 	
 	/**
 	 * 
-	 * @param direction - direction in which SlideHolder opens. Can be: DIRECTION_LEFT, DIRECTION_RIGHT
+	 * @param direction - direction in which SlideHolder opens. Can be: DIRECTION_LEFT, DIRECTION_RIGHT.
+	 * If there are two menus (first child is left menu, second is main layout, third is right menu), it chooses menu which is opened by open() and toggle(), while swiping opens menu from any side
 	 */
 	public void setDirection(int direction) {
+		mDirection = direction;
+		
 		closeImmediately();
 		
-		mDirection = direction;
+		mController.setDirection(direction);
+		
+		if(mMenuView != null) {
+			selectMenu();
+			updateMenuVisibility();
+		}
+	}
+	
+	/**
+	 * 
+	 * @return direction of current (or last) slide
+	 */
+	public int getDirection() {
+		return mController.getDirection();
 	}
 	
 	/**
@@ -125,6 +341,31 @@ public class SlideHolder extends FrameLayout {
 		return mInterceptTouch;
 	}
 	
+	/**
+	 * 
+	 * @param sizeDp - width of the edge (in dp) where swipe which opens menu can start. 48dp by default
+	 */
+	public void setEdgeSize(float sizeDp) {
+		mEdgeSize = sizeDp;
+	}
+	
+	public float getEdgeSize() {
+		return mEdgeSize;
+	}
+	
+	/**
+	 * 
+	 * @param anywhere - if true, swipe which opens menu can start at any point of main layout, not only at the edge. Touches which
+	 * start outside of the edge are not processed by SlideHolder otherwise
+	 */
+	public void setSlideFromAnywhere(boolean anywhere) {
+		mSlideFromAnywhere = anywhere;
+	}
+	
+	public boolean isSlideFromAnywhere() {
+		return mSlideFromAnywhere;
+	}
+	
 	/**
 	 * 
 	 * @param dispatch - if true, in open state SlideHolder will dispatch touch events to main layout (in other words - it will be clickable)
@@ -144,19 +385,256 @@ public class SlideHolder extends FrameLayout {
 	public void setAlwaysOpened(boolean opened) {
 		mAlwaysOpened = opened;
 		
+		updateMenuVisibility();
 		requestLayout();
 	}
 	
+	/**
+	 * 
+	 * @param mode - how main layout is rendered during slide. Can be: RENDER_MODE_AUTO, RENDER_MODE_SNAPSHOT, RENDER_MODE_HARDWARE_LAYER, RENDER_MODE_LIVE
+	 */
+	public void setRenderMode(int mode) {
+		mRenderMode = mode;
+	}
+	
+	public int getRenderMode() {
+		return mRenderMode;
+	}
+	
+	/**
+	 * 
+	 * @return render mode which is (or was) used for current (or last) slide. Never returns RENDER_MODE_AUTO
+	 */
+	public int getActiveRenderMode() {
+		return mActiveRenderMode;
+	}
+	
+	/**
+	 * 
+	 * @param config - pixel format of main layout snapshot. If null (default), RGB_565 is used for opaque main layout and ARGB_8888 (or ARGB_4444 if budget is exceeded, before KitKat) otherwise
+	 */
+	public void setSnapshotConfig(Bitmap.Config config) {
+		mSnapshotConfig = config;
+	}
+	
+	public Bitmap.Config getSnapshotConfig() {
+		return mSnapshotConfig;
+	}
+	
+	/**
+	 * 
+	 * @param bytes - maximum size of main layout snapshot. If snapshot doesn't fit, main layout will be drawn without it. 0 means no limit
+	 */
+	public void setSnapshotMemoryBudget(int bytes) {
+		mSnapshotMemoryBudget = bytes;
+	}
+	
+	public int getSnapshotMemoryBudget() {
+		return mSnapshotMemoryBudget;
+	}
+	
+	/**
+	 * 
+	 * @return amount of pixels of main layout snapshot which were rasterized again during last frame
+	 */
+	public int getRecapturedPixels() {
+		return mRecapturedPixels;
+	}
+	
+	/**
+	 * 
+	 * @return amount of pixels of main layout snapshot which were rasterized again since current (or last) slide started
+	 */
+	public long getTotalRecapturedPixels() {
+		return mTotalRecapturedPixels;
+	}
+	
+	/**
+	 * 
+	 * @param minRate - how many times per second changed main layout is redrawn into snapshot during slide, even if it makes frames slower
+	 * @param maxRate - how many times per second main layout can be redrawn into snapshot at most. 0 means no limit
+	 */
+	public void setSnapshotRefreshRate(float minRate, float maxRate) {
+		mRefreshScheduler.setRefreshRate(minRate, maxRate);
+	}
+	
+	/**
+	 * 
+	 * @param staticContent - if true, main layout snapshot is never redrawn during slide
+	 */
+	public void setStaticContent(boolean staticContent) {
+		mRefreshScheduler.setStaticContent(staticContent);
+	}
+	
+	public boolean isStaticContent() {
+		return mRefreshScheduler.isStaticContent();
+	}
+	
+	/**
+	 * 
+	 * @param enabled - if true, SlideHolder collects performance metrics of every slide (see getSlideMetrics()). Disabled by default
+	 */
+	public void setMetricsEnabled(boolean enabled) {
+		if(enabled && mMetrics == null) {
+			mMetrics = new SlideMetrics();
+			mMetrics.setCachedBytes(mCachedBitmap != null ? SnapshotBitmapPool.getBytes(mCachedBitmap) : 0);
+		} else if(!enabled) {
+			mMetrics = null;
+		}
+	}
+	
+	public boolean isMetricsEnabled() {
+		return mMetrics != null;
+	}
+	
+	/**
+	 * 
+	 * @return metrics of current (or last) slide or null if metrics are disabled
+	 */
+	public SlideMetrics getSlideMetrics() {
+		return mMetrics;
+	}
+	
+	/**
+	 * 
+	 * @param enabled - if true, menu is drawn into a snapshot once per slide, which is redrawn only when menu changes. Useful for complex menus (long lists, etc.). Disabled by default
+	 */
+	public void setMenuCacheEnabled(boolean enabled) {
+		mMenuCacheEnabled = enabled;
+	}
+	
+	public boolean isMenuCacheEnabled() {
+		return mMenuCacheEnabled;
+	}
+	
+	/**
+	 * 
+	 * @param effect - transformations of main layout and menu during slide (see RevealEffects). They are applied while drawing, so layout and snapshots are not touched. Null to disable
+	 */
+	public void setRevealEffect(RevealEffect effect) {
+		mRevealEffect = effect;
+		
+		invalidate();
+	}
+	
+	public RevealEffect getRevealEffect() {
+		return mRevealEffect;
+	}
+	
+	/**
+	 * 
+	 * @param color - color which dims main layout while menu opens. Its alpha is reached when menu is fully opened. Not used in always opened mode. Transparent by default
+	 */
+	public void setScrimColor(int color) {
+		mScrimColor = color;
+		
+		invalidate();
+	}
+	
+	public int getScrimColor() {
+		return mScrimColor;
+	}
+	
+	/**
+	 * 
+	 * @param widthDp - width of shadow which main layout casts on menu, in dp. 0 to disable (default)
+	 * @param color - color of shadow next to main layout, it fades out to transparent
+	 */
+	public void setEdgeShadow(float widthDp, int color) {
+		mShadowWidth = widthDp;
+		mShadowColor = color;
+		
+		invalidate();
+	}
+	
+	/**
+	 * 
+	 * @param enabled - if true, quality of snapshot goes down step by step while frames are dropped during slide, and comes back when slide is finished. Enabled by default
+	 */
+	public void setAdaptiveQualityEnabled(boolean enabled) {
+		mAdaptiveQuality = enabled;
+	}
+	
+	public boolean isAdaptiveQualityEnabled() {
+		return mAdaptiveQuality;
+	}
+	
+	/**
+	 * 
+	 * @return current quality of snapshot: QUALITY_FULL, QUALITY_NO_FILTER, QUALITY_HALF_RESOLUTION or QUALITY_LOW_FORMAT
+	 */
+	public int getQualityLevel() {
+		return mQualityLevel;
+	}
+	
+	/**
+	 * 
+	 * @param enabled - if true, snapshot of main layout is captured in advance: when touch starts near the edge and when main layout is idle, so slide doesn't stall on its first frame. Enabled by default
+	 */
+	public void setSnapshotPrewarmEnabled(boolean enabled) {
+		mPrewarmEnabled = enabled;
+	}
+	
+	public boolean isSnapshotPrewarmEnabled() {
+		return mPrewarmEnabled;
+	}
+	
+	/**
+	 * 
+	 * @param enabled - if true, main layout is recorded into Picture on UI thread and rasterized into snapshot on worker thread. Until it's done, previous snapshot (or the Picture itself) is drawn. Takes memory for one more snapshot. Disabled by default
+	 */
+	public void setAsyncSnapshotEnabled(boolean enabled) {
+		mAsyncSnapshot = enabled;
+		
+		if(!enabled && mRasterizer != null) {
+			mRasterizer.discard();
+			
+			/*
+			 * Snapshot of current slide may be still in progress, so it's captured synchronously
+			 */
+			mSnapshotStale = true;
+		}
+	}
+	
+	public boolean isAsyncSnapshotEnabled() {
+		return mAsyncSnapshot;
+	}
+	
+	/**
+	 * 
+	 * @param direction - side of the menu: DIRECTION_LEFT or DIRECTION_RIGHT. Doesn't matter if there is only one menu
+	 * @param layoutResId - layout of the menu, which is inflated on background thread after first frame (or when touch starts near the edge).
+	 * Until then, menu child serves as placeholder (it should be lightweight, have the width of menu and be added before this method is called), and is replaced by inflated layout afterwards.
+	 * Background thread has no Looper, so if any view of the layout creates Handler in its constructor, layout is inflated on UI thread instead
+	 */
+	public void setMenuLayout(int direction, int layoutResId) {
+		mMenuLayouts[getMenuIndex(direction)] = layoutResId;
+		
+		/*
+		 * Inflation starts after next frame
+		 */
+		mMenuInflationScheduled = false;
+		invalidate();
+	}
+	
 	public int getMenuOffset() {
-		return mOffset;
+		return (int) mController.getOffset();
 	}
 	
 	public void setOnSlideListener(OnSlideListener lis) {
 		mListener = lis;
 	}
 	
+	/**
+	 * 
+	 * @return true if menu is opened, or is going to be opened on first layout
+	 */
 	public boolean isOpened() {
-		return mAlwaysOpened || mMode == MODE_FINISHED;
+		if(mPendingState != PENDING_NONE && !mAlwaysOpened) {
+			return mPendingState == PENDING_OPENED;
+		}
+		
+		return mAlwaysOpened || mController.isOpened();
 	}
 	
 	public void toggle(boolean immediately) {
@@ -184,27 +662,21 @@ public class SlideHolder extends FrameLayout {
 	}
 	
 	public boolean open() {
-		if(isOpened() || mAlwaysOpened || mMode == MODE_SLIDE) {
+		if(isOpened() || mAlwaysOpened || mController.getMode() == MODE_SLIDE) {
 			return false;
 		}
 		
 		if(!isReadyForSlide()) {
-			mWhenReady.add(new Runnable() {
-				
-				@Override
-				public void run() {
-					open();
-				}
-			});
+			setPendingState(PENDING_OPENED, true);
 			
 			return true;
 		}
 		
+		restoreDirection();
 		initSlideMode();
 		
-		Animation anim = new SlideAnimation(mOffset, mEndOffset, mSpeed);
-		anim.setAnimationListener(mOpenListener);
-		startAnimation(anim);
+		mController.animateTo(true);
+		mSlideAnimator.start();
 		
 		invalidate();
 		
@@ -212,24 +684,21 @@ public class SlideHolder extends FrameLayout {
 	}
 	
 	public boolean openImmediately() {
-		if(isOpened() || mAlwaysOpened || mMode == MODE_SLIDE) {
+		if(isOpened() || mAlwaysOpened || mController.getMode() == MODE_SLIDE) {
 			return false;
 		}
 		
 		if(!isReadyForSlide()) {
-			mWhenReady.add(new Runnable() {
-				
-				@Override
-				public void run() {
-					openImmediately();
-				}
-			});
+			setPendingState(PENDING_OPENED, false);
 			
 			return true;
 		}
 		
+		restoreDirection();
+		selectMenu();
+		
 		mMenuView.setVisibility(View.VISIBLE);
-		mMode = MODE_FINISHED;
+		mController.setOpened(true);
 		requestLayout();
 		
 		if(mListener != null) {
@@ -240,27 +709,20 @@ public class SlideHolder extends FrameLayout {
 	}
 	
 	public boolean close() {
-		if(!isOpened() || mAlwaysOpened || mMode == MODE_SLIDE) {
+		if(!isOpened() || mAlwaysOpened || mController.getMode() == MODE_SLIDE) {
 			return false;
 		}
 		
 		if(!isReadyForSlide()) {
-			mWhenReady.add(new Runnable() {
-				
-				@Override
-				public void run() {
-					close();
-				}
-			});
+			setPendingState(PENDING_CLOSED, true);
 			
 			return true;
 		}
 		
 		initSlideMode();
 		
-		Animation anim = new SlideAnimation(mOffset, mEndOffset, mSpeed);
-		anim.setAnimationListener(mCloseListener);
-		startAnimation(anim);
+		mController.animateTo(false);
+		mSlideAnimator.start();
 		
 		invalidate();
 		
@@ -268,24 +730,19 @@ public class SlideHolder extends FrameLayout {
 	}
 	
 	public boolean closeImmediately() {
-		if(!isOpened() || mAlwaysOpened || mMode == MODE_SLIDE) {
+		if(!isOpened() || mAlwaysOpened || mController.getMode() == MODE_SLIDE) {
 			return false;
 		}
 		
 		if(!isReadyForSlide()) {
-			mWhenReady.add(new Runnable() {
-				
-				@Override
-				public void run() {
-					closeImmediately();
-				}
-			});
+			setPendingState(PENDING_CLOSED, false);
 			
 			return true;
 		}
 		
 		mMenuView.setVisibility(View.GONE);
-		mMode = MODE_READY;
+		mController.setOpened(false);
+		restoreDirection();
 		requestLayout();
 		
 		if(mListener != null) {
@@ -302,93 +759,377 @@ public class SlideHolder extends FrameLayout {
 		final int parentRight = r - l;
 		final int parentBottom = b - t;
 		
-		View menu = getChildAt(0);
-		int menuWidth = menu.getMeasuredWidth();
-		
-		if(mDirection == DIRECTION_LEFT) {
-			menu.layout(parentLeft, parentTop, parentLeft+menuWidth, parentBottom);
+		if(hasBothMenus()) {
+			View leftMenu = getMenu(DIRECTION_LEFT);
+			View rightMenu = getMenu(DIRECTION_RIGHT);
+			
+			final int leftWidth = leftMenu.getMeasuredWidth();
+			final int rightWidth = rightMenu.getMeasuredWidth();
+			
+			leftMenu.layout(parentLeft, parentTop, parentLeft+leftWidth, parentBottom);
+			rightMenu.layout(parentRight-rightWidth, parentTop, parentRight, parentBottom);
+			
+			mController.setBothDirections(!mAlwaysOpened);
+			mController.layout(leftWidth, rightWidth, mAlwaysOpened);
 		} else {
-			menu.layout(parentRight-menuWidth, parentTop, parentRight, parentBottom);
-		}
-		
-		if(mAlwaysOpened) {
-			if(mDirection == DIRECTION_LEFT) {
-				mOffset = menuWidth;
-			} else {
-				mOffset = 0;
+			View menu = getChildAt(0);
+			int menuWidth = menu.getMeasuredWidth();
+			
+			if(mController.getDirection() == DIRECTION_LEFT) {
+				menu.layout(parentLeft, parentTop, parentLeft+menuWidth, parentBottom);
+			} else {
+				menu.layout(parentRight-menuWidth, parentTop, parentRight, parentBottom);
 			}
-		} else if(mMode == MODE_FINISHED) {
-			mOffset = mDirection*menuWidth;
-		} else if(mMode == MODE_READY) {
-			mOffset = 0;
+			
+			mController.setBothDirections(false);
+			mController.layout(menuWidth, mAlwaysOpened);
 		}
 		
+		final int offset = (int) mController.getOffset();
+		
 		View main = getChildAt(1);
 		main.layout(
-					parentLeft + mOffset,
+					parentLeft + offset,
 					parentTop,
-					parentLeft + mOffset + main.getMeasuredWidth(),
+					parentLeft + offset + main.getMeasuredWidth(),
 					parentBottom
 				);
 		
-		invalidate();
-		
-		Runnable rn;
-        while((rn = mWhenReady.poll()) != null) {
-        	rn.run();
-        }
+		if(mPendingState != PENDING_NONE) {
+			final boolean open = mPendingState == PENDING_OPENED;
+			
+			mPendingState = PENDING_NONE;
+			
+			if(open && mPendingAnimated) {
+				open();
+			} else if(open) {
+				openImmediately();
+			} else if(mPendingAnimated) {
+				close();
+			} else {
+				closeImmediately();
+			}
+		}
+	}
+	
+	/*
+	 * Requests before first layout are collapsed into the last one
+	 */
+	private void setPendingState(int state, boolean animated) {
+		mPendingState = state;
+		mPendingAnimated = animated;
 	}
 	
 	private boolean isReadyForSlide() {
 		return (getWidth() > 0 && getHeight() > 0);
 	}
 	
+	private boolean hasBothMenus() {
+		return getChildCount() > 2;
+	}
+	
+	private View getMenu(int direction) {
+		return direction == DIRECTION_RIGHT && hasBothMenus() ? getChildAt(2) : getChildAt(0);
+	}
+	
+	private int getMenuIndex(int direction) {
+		return direction == DIRECTION_RIGHT && hasBothMenus() ? 1 : 0;
+	}
+	
+	private final Runnable mStartMenuInflationRunnable = new Runnable() {
+		
+		@Override
+		public void run() {
+			startMenuInflation();
+		}
+	};
+	
+	private void startMenuInflation() {
+		for(int i = 0; i < mMenuLayouts.length; i++) {
+			if(mMenuLayouts[i] != 0 && !mMenuInflating[i]) {
+				mMenuInflating[i] = true;
+				
+				/*
+				 * Clone has its own constructor arguments, so inflation on UI thread doesn't wait for it.
+				 * Thread is not the shared worker: it has no Looper, so views which need one fail instead
+				 * of binding their handlers to a background thread
+				 */
+				LayoutInflater inflater = LayoutInflater.from(getContext()).cloneInContext(getContext());
+				
+				new Thread(new MenuInflation(i, mMenuLayouts[i], inflater), "SlideHolderInflater").start();
+			}
+		}
+	}
+	
+	/*
+	 * Called on UI thread when menu is inflated
+	 */
+	private void onMenuInflated(int index, int layoutResId, View menu) {
+		mMenuInflating[index] = false;
+		
+		if(mMenuLayouts[index] != layoutResId) {
+			/*
+			 * Layout was changed meanwhile, so new one is inflated instead
+			 */
+			startMenuInflation();
+			
+			return;
+		}
+		
+		mMenuLayouts[index] = 0;
+		
+		if(menu == null) {
+			/*
+			 * Some views can't be created off the UI thread
+			 */
+			menu = LayoutInflater.from(getContext()).inflate(layoutResId, this, false);
+		}
+		
+		mInflatedMenus[index] = menu;
+		
+		if(mController.getMode() != MODE_SLIDE) {
+			applyInflatedMenus();
+		}
+	}
+	
+	/*
+	 * Replaces placeholders with inflated menus. Menu is never replaced in the middle of slide
+	 */
+	private void applyInflatedMenus() {
+		for(int i = 0; i < mInflatedMenus.length; i++) {
+			View menu = mInflatedMenus[i];
+			
+			if(menu == null) {
+				continue;
+			}
+			
+			mInflatedMenus[i] = null;
+			
+			if(getChildCount() < 2) {
+				/*
+				 * There is no placeholder, so menu just takes its place
+				 */
+				addView(menu, 0);
+				continue;
+			}
+			
+			View placeholder = getMenu(i == 0 ? DIRECTION_LEFT : DIRECTION_RIGHT);
+			final int index = indexOfChild(placeholder);
+			
+			if(menu.getLayoutParams() == null) {
+				menu.setLayoutParams(placeholder.getLayoutParams());
+			}
+			menu.setVisibility(placeholder.getVisibility());
+			
+			removeViewAt(index);
+			addView(menu, index);
+			
+			if(mMenuView == placeholder) {
+				mMenuView = menu;
+			}
+		}
+	}
+	
+	private class MenuInflation implements Runnable {
+		
+		private final int mIndex;
+		private final int mLayoutResId;
+		private final LayoutInflater mInflater;
+		
+		public MenuInflation(int index, int layoutResId, LayoutInflater inflater) {
+			mIndex = index;
+			mLayoutResId = layoutResId;
+			mInflater = inflater;
+		}
+		
+		@Override
+		public void run() {
+			Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+			
+			View menu;
+			
+			try {
+				menu = mInflater.inflate(mLayoutResId, SlideHolder.this, false);
+			} catch(RuntimeException e) {
+				menu = null;
+			}
+			
+			final View result = menu;
+			
+			BackgroundWorker.getMainHandler().post(new Runnable() {
+				
+				@Override
+				public void run() {
+					onMenuInflated(mIndex, mLayoutResId, result);
+				}
+			});
+		}
+		
+	}
+	
+	/*
+	 * Makes menu of current direction the active one. Menu of other side stays hidden,
+	 * so nothing is drawn or cached for it until it's opened
+	 */
+	/*
+	 * Should be called only when menu is closed
+	 */
+	private void restoreDirection() {
+		if(mController.getDirection() != mDirection) {
+			mController.setDirection(mDirection);
+			selectMenu();
+		}
+	}
+	
+	private void selectMenu() {
+		View menu = getMenu(mController.getDirection());
+		
+		if(menu != mMenuView && mMenuView != null) {
+			releaseMenuBitmap();
+		}
+		
+		mMenuView = menu;
+		
+		if(hasBothMenus()) {
+			View other = getMenu(-mController.getDirection());
+			
+			if(other.getVisibility() != View.GONE) {
+				other.setVisibility(View.GONE);
+			}
+		}
+	}
+	
 	@Override
     protected void onMeasure(int wSp, int hSp) {
-		mMenuView = getChildAt(0);
-		
-        if(mAlwaysOpened) {
-            View main = getChildAt(1);
-            
-            if(mMenuView != null && main != null) {
-            	measureChild(mMenuView, wSp, hSp);
-                LayoutParams lp = (LayoutParams) main.getLayoutParams();
-                
-                if(mDirection == DIRECTION_LEFT) {
-                	lp.leftMargin = mMenuView.getMeasuredWidth();
-                } else {
-                	lp.rightMargin = mMenuView.getMeasuredWidth();
-                }
-            }
-        }
+		selectMenu();
+		
+		if(mAlwaysOpened && mMenuView != null && getChildCount() > 1) {
+			measureSplitPane(wSp, hSp);
+			
+			return;
+		}
         
         super.onMeasure(wSp, hSp);
+        
+        /*
+         * Hidden menu is skipped by FrameLayout, but its width is needed for slide.
+         * It's measured again when it or size of the holder is changed
+         */
+        final boolean specChanged = wSp != mMenuWidthSpec || hSp != mMenuHeightSpec;
+        
+        mMenuWidthSpec = wSp;
+        mMenuHeightSpec = hSp;
+        
+        for(int i = 0; i < getChildCount(); i += 2) {
+        	View menu = getChildAt(i);
+        	
+        	if(menu.getVisibility() == View.GONE && (specChanged || menu.isLayoutRequested() || menu.getMeasuredWidth() == 0)) {
+        		measureChildWithMargins(menu, wSp, 0, hSp, 0);
+        	}
+        }
     }
-
-	private byte mFrame = 0;
 	
+	/*
+	 * Menu and main layout are placed side by side, so each of them is measured
+	 * once and main layout gets only the width which is left by menu
+	 */
+	private void measureSplitPane(int wSp, int hSp) {
+		View main = getChildAt(1);
+		
+		measureChildWithMargins(mMenuView, wSp, 0, hSp, 0);
+		final int menuWidth = mMenuView.getMeasuredWidth();
+		
+		measureChildWithMargins(main, wSp, menuWidth, hSp, 0);
+		
+		final int width = getPaddingLeft() + getPaddingRight() + menuWidth + main.getMeasuredWidth();
+		final int height = getPaddingTop() + getPaddingBottom() + Math.max(mMenuView.getMeasuredHeight(), main.getMeasuredHeight());
+		
+		setMeasuredDimension(resolveSize(width, wSp), resolveSize(height, hSp));
+	}
+	
+	@Override
+	public void addView(View child, int index, ViewGroup.LayoutParams params) {
+		super.addView(child, index, params);
+		
+		/*
+		 * Views are added by inflation, from code and by applyInflatedMenus(), so closed menu
+		 * is hidden right here, before the first traversal, not in the middle of it
+		 */
+		updateMenuVisibility();
+	}
+	
+	/*
+	 * Only menu of current direction can be visible, and only when it's opened or slides
+	 */
+	private void updateMenuVisibility() {
+		View active = getMenu(mController.getDirection());
+		final boolean shown = mAlwaysOpened || mController.getMode() != MODE_READY;
+		
+		for(int i = 0; i < getChildCount(); i += 2) {
+			View menu = getChildAt(i);
+			final int visibility = menu == active && shown ? View.VISIBLE : View.GONE;
+			
+			if(menu.getVisibility() != visibility) {
+				menu.setVisibility(visibility);
+			}
+		}
+	}
+
 	@Override
 	protected void dispatchDraw(Canvas canvas) {
 		try {
-			if(mMode == MODE_SLIDE) {
+			if(mController.getMode() == MODE_SLIDE) {
+				final long frameStart = System.nanoTime();
+				final float offset = mController.getOffset();
+				long refreshCost = 0;
+				
 				View main = getChildAt(1);
-				if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+				mRecapturedPixels = 0;
+				
+				if(mActiveRenderMode == RENDER_MODE_SNAPSHOT && mSnapshotStale) {
 					/*
-					 * On new versions we redrawing main layout only
-					 * if it's marked as dirty 
+					 * Quality was changed, so snapshot is captured again from scratch
 					 */
-					if(main.isDirty()) {
-						mCachedCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
-						main.draw(mCachedCanvas);
-				}
-				} else {
+					prepareSnapshot(main);
+					
+					refreshCost = System.nanoTime() - frameStart;
+				} else if(mActiveRenderMode == RENDER_MODE_SNAPSHOT) {
+					boolean dirty;
+					
+					if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+						dirty = main.isDirty();
+						
+						if(!dirty) {
+							/*
+							 * Invalidated regions came from menu
+							 */
+							mDirtyRect.setEmpty();
+						}
+					} else {
+						/*
+						 * On older versions we have to rely on invalidated regions only
+						 */
+						dirty = !mDirtyRect.isEmpty();
+					}
+					
 					/*
-					 * On older versions we just redrawing our cache
-					 * every 5th frame
+					 * Busy rasterizer can't take new Picture yet, so dirty region waits for it
 					 */
-					if(++mFrame % 5 == 0) {
-						mCachedCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
-						main.draw(mCachedCanvas);
+					final boolean canRefresh = !mAsyncSnapshot || mRasterizer == null || !mRasterizer.isBusy();
+					
+					if(canRefresh && mRefreshScheduler.shouldRefresh(frameStart, dirty)) {
+						if(mAsyncSnapshot) {
+							startRasterization(main);
+						} else {
+							captureMain(main, true);
+						}
+						
+						if(mMetrics != null) {
+							mMetrics.onRecapture();
+						}
+						
+						refreshCost = System.nanoTime() - frameStart;
+						mRefreshScheduler.onRefreshed(frameStart, refreshCost);
 					}
 				}
 
@@ -396,35 +1137,157 @@ public class SlideHolder extends FrameLayout {
 				 * Draw only visible part of menu
 				 */
 				
-				View menu = getChildAt(0);
+				View menu = mMenuView;
 				final int scrollX = menu.getScrollX();
 				final int scrollY = menu.getScrollY();
 				
 				canvas.save();
 				
-				if(mDirection == DIRECTION_LEFT) {
-					canvas.clipRect(0, 0, mOffset, menu.getHeight(), Op.REPLACE);
-				} else {
-					int menuWidth = menu.getWidth();
-					int menuLeft = menu.getLeft();
-					
-					canvas.clipRect(menuLeft+menuWidth+mOffset, 0, menuLeft+menuWidth, menu.getHeight());
+				/*
+				 * Transformed main layout may uncover any part of menu, so it's not clipped then
+				 */
+				if(mRevealEffect == null) {
+					if(mController.getDirection() == DIRECTION_LEFT) {
+						canvas.clipRect(0, 0, offset, menu.getHeight(), Op.REPLACE);
+					} else {
+						int menuWidth = menu.getWidth();
+						int menuLeft = menu.getLeft();
+						
+						canvas.clipRect(menuLeft+menuWidth+offset, 0, menuLeft+menuWidth, menu.getHeight());
+					}
 				}
 				
 				canvas.translate(menu.getLeft(), menu.getTop());
-				canvas.translate(-scrollX, -scrollY);
 				
-				menu.draw(canvas);
+				if(mRevealEffect != null) {
+					canvas.concat(getRevealMatrix(menu, getSlideFraction()));
+				}
+				
+				if(mMenuBitmap != null) {
+					if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB ? menu.isDirty() : mMenuDirty) {
+						captureMenu(menu);
+					}
+					
+					canvas.drawBitmap(mMenuBitmap, 0, 0, null);
+				} else {
+					canvas.translate(-scrollX, -scrollY);
+					
+					menu.draw(canvas);
+				}
 				
 				canvas.restore();
 				
-				canvas.drawBitmap(mCachedBitmap, mOffset, 0, mCachedPaint);
+				final Picture picture = mRasterizer != null ? mRasterizer.getPicture() : null;
+				
+				if(mActiveRenderMode == RENDER_MODE_SNAPSHOT && mCachedBitmap != null) {
+					canvas.save();
+					canvas.translate(offset, 0);
+					
+					if(mRevealEffect != null) {
+						/*
+						 * Snapshot may be larger than main layout, so its spare area is clipped away
+						 */
+						canvas.concat(getRevealMatrix(main, getSlideFraction()));
+						canvas.clipRect(0, 0, main.getWidth(), main.getHeight());
+					}
+					
+					if(mCachedBitmapScale != 1) {
+						canvas.scale(mCachedBitmapScale, mCachedBitmapScale);
+					}
+					
+					/*
+					 * Filtering is needed only if snapshot is drawn between pixels
+					 */
+					mCachedPaint.setFilterBitmap(mQualityLevel == QUALITY_FULL
+							&& (mRevealEffect != null || mCachedBitmapScale != 1 || offset != (int) offset));
+					canvas.drawBitmap(mCachedBitmap, 0, 0, mCachedPaint);
+					canvas.restore();
+				} else if(mActiveRenderMode == RENDER_MODE_SNAPSHOT && picture != null && canDrawPicture(canvas)) {
+					/*
+					 * First snapshot is not rasterized yet
+					 */
+					canvas.save();
+					canvas.translate(offset, 0);
+					
+					if(mRevealEffect != null) {
+						canvas.concat(getRevealMatrix(main, getSlideFraction()));
+						canvas.clipRect(0, 0, main.getWidth(), main.getHeight());
+					}
+					
+					canvas.drawPicture(picture);
+					canvas.restore();
+				} else {
+					/*
+					 * Main layout is still laid out at the start offset,
+					 * so we just move it to the current one
+					 */
+					canvas.save();
+					canvas.translate(offset - main.getLeft(), 0);
+					
+					if(mRevealEffect != null) {
+						concatRevealMatrix(canvas, main, getSlideFraction());
+					}
+					
+					drawChild(canvas, main, getDrawingTime());
+					canvas.restore();
+				}
+				
+				if(hasDecorations()) {
+					canvas.save();
+					canvas.translate(offset, main.getTop());
+					
+					if(mRevealEffect != null) {
+						canvas.concat(getRevealMatrix(main, getSlideFraction()));
+					}
+					
+					drawDecorations(canvas, main.getWidth(), main.getHeight(), getSlideFraction());
+					canvas.restore();
+				}
+				
+				final long frameCost = System.nanoTime() - frameStart;
+				mRefreshScheduler.onFrameDrawn(frameCost - refreshCost);
+				
+				if(!mController.isAnimating() && frameCost - refreshCost > mFrameIntervalNanos) {
+					/*
+					 * While finger moves there are no frame callbacks, so slow draw is the only sign of jank
+					 */
+					onJank(1);
+				}
+				
+				if(mMetrics != null) {
+					mMetrics.onFrameDrawn(frameCost);
+				}
 			} else {
-				if(!mAlwaysOpened && mMode == MODE_READY) {
-		        	mMenuView.setVisibility(View.GONE);
-		        }
+				if(!mMenuInflationScheduled && (mMenuLayouts[0] != 0 || mMenuLayouts[1] != 0)) {
+					mMenuInflationScheduled = true;
+					post(mStartMenuInflationRunnable);
+				}
+				
+				if(mRenderMode == RENDER_MODE_AUTO && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+						&& !canvas.isHardwareAccelerated()) {
+					long start = System.nanoTime();
+					super.dispatchDraw(canvas);
+					mLiveDrawNanos = averageCost(mLiveDrawNanos, System.nanoTime() - start);
+				} else {
+					super.dispatchDraw(canvas);
+				}
 				
-				super.dispatchDraw(canvas);
+				if((mAlwaysOpened || mController.getMode() == MODE_FINISHED) && hasDecorations()) {
+					/*
+					 * Drawn after all children, because right menu goes after main layout
+					 */
+					View main = getChildAt(1);
+					
+					canvas.save();
+					
+					if(mRevealEffect != null && !mAlwaysOpened) {
+						concatRevealMatrix(canvas, main, 1);
+					}
+					
+					canvas.translate(main.getLeft(), main.getTop());
+					drawDecorations(canvas, main.getWidth(), main.getHeight(), mAlwaysOpened ? 0 : 1);
+					canvas.restore();
+				}
 			}
 		} catch(IndexOutOfBoundsException e) {
 			/*
@@ -434,36 +1297,161 @@ public class SlideHolder extends FrameLayout {
 		}
 	}
 	
-	private int mHistoricalX = 0;
+	@Override
+	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+		if(mSnapshotFresh && child != mMenuView && Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB
+				&& mController.getMode() != MODE_SLIDE && child.isDirty()) {
+			/*
+			 * With hardware acceleration invalidations of main layout may not pass through us
+			 */
+			onMainContentChanged();
+		}
+		
+		if(mRevealEffect == null || mAlwaysOpened || mController.getMode() != MODE_FINISHED) {
+			return super.drawChild(canvas, child, drawingTime);
+		}
+		
+		/*
+		 * Opened menu keeps the final state of effect
+		 */
+		canvas.save();
+		concatRevealMatrix(canvas, child, 1);
+		boolean result = super.drawChild(canvas, child, drawingTime);
+		canvas.restore();
+		
+		return result;
+	}
+	
+	private boolean hasDecorations() {
+		return (mScrimColor >>> 24) != 0 || (mShadowWidth > 0 && (mShadowColor >>> 24) != 0);
+	}
+	
+	/*
+	 * Draws scrim over main layout and its shadow on menu. Canvas is in coordinates of main layout
+	 */
+	private void drawDecorations(Canvas canvas, int width, int height, float fraction) {
+		final int scrimAlpha = (int) ((mScrimColor >>> 24) * fraction);
+		
+		if(scrimAlpha > 0) {
+			canvas.save();
+			canvas.clipRect(0, 0, width, height);
+			canvas.drawColor((scrimAlpha << 24) | (mScrimColor & 0xFFFFFF));
+			canvas.restore();
+		}
+		
+		final int shadowWidth = (int) (mShadowWidth*mDensity);
+		
+		if(shadowWidth > 0 && (mShadowColor >>> 24) != 0) {
+			if(mShadowShader == null || mShadowShaderWidth != shadowWidth || mShadowShaderColor != mShadowColor) {
+				/*
+				 * Gradient doesn't depend on height, so it's recreated only when shadow itself changes
+				 */
+				mShadowShader = new LinearGradient(-shadowWidth, 0, 0, 0,
+						mShadowColor & 0xFFFFFF, mShadowColor, Shader.TileMode.CLAMP);
+				mShadowShaderWidth = shadowWidth;
+				mShadowShaderColor = mShadowColor;
+				
+				if(mShadowPaint == null) {
+					mShadowPaint = new Paint();
+				}
+				mShadowPaint.setShader(mShadowShader);
+			}
+			
+			canvas.save();
+			
+			if(mController.getDirection() == DIRECTION_RIGHT) {
+				/*
+				 * Menu is on the right, so shadow is mirrored to the right edge
+				 */
+				canvas.translate(width, 0);
+				canvas.scale(-1, 1);
+			}
+			
+			canvas.drawRect(-shadowWidth, 0, 0, height, mShadowPaint);
+			canvas.restore();
+		}
+	}
+	
+	private float getSlideFraction() {
+		final int menuWidth = mController.getMenuWidth();
+		if(menuWidth == 0) {
+			return 0;
+		}
+		
+		return Math.min(1, Math.abs(mController.getOffset()) / menuWidth);
+	}
+	
+	/*
+	 * Returned matrix is reused, so it's valid only until next call
+	 */
+	private Matrix getRevealMatrix(View child, float fraction) {
+		mRevealMatrix.reset();
+		
+		if(child == mMenuView) {
+			mRevealEffect.transformMenu(fraction, mController.getDirection(), child.getWidth(), child.getHeight(), mRevealMatrix);
+		} else {
+			mRevealEffect.transformMain(fraction, mController.getDirection(), child.getWidth(), child.getHeight(), mRevealMatrix);
+		}
+		
+		return mRevealMatrix;
+	}
+	
+	/*
+	 * Effects work in coordinates of child
+	 */
+	private void concatRevealMatrix(Canvas canvas, View child, float fraction) {
+		canvas.translate(child.getLeft(), child.getTop());
+		canvas.concat(getRevealMatrix(child, fraction));
+		canvas.translate(-child.getLeft(), -child.getTop());
+	}
+	
 	private boolean mCloseOnRelease = false;
 	
 	@Override
 	public boolean dispatchTouchEvent(MotionEvent ev) {
-		if(((!mEnabled || !mInterceptTouch) && mMode == MODE_READY) || mAlwaysOpened) {
+		final int mode = mController.getMode();
+		
+		if(((!mEnabled || !mInterceptTouch) && mode == MODE_READY) || mAlwaysOpened) {
+			return super.dispatchTouchEvent(ev);
+		}
+		
+		if(ev.getAction() == MotionEvent.ACTION_DOWN) {
+			mTrackGesture = mode != MODE_READY || mSlideFromAnywhere || isEdgeTouch(ev.getX());
+		}
+		
+		if(mode == MODE_READY && !mTrackGesture) {
+			/*
+			 * Gesture can't open menu, so it goes straight to main layout
+			 */
 			return super.dispatchTouchEvent(ev);
 		}
 		
-		if(mMode != MODE_FINISHED) {
+		if(mode != MODE_FINISHED) {
 			onTouchEvent(ev);
 			
-			if(mMode != MODE_SLIDE) {
+			if(mController.getMode() != MODE_SLIDE) {
 				super.dispatchTouchEvent(ev);
-			} else {
-				MotionEvent cancelEvent = MotionEvent.obtain(ev);
-				cancelEvent.setAction(MotionEvent.ACTION_CANCEL);
-				super.dispatchTouchEvent(cancelEvent);
-				cancelEvent.recycle();
+			} else if(!mCancelSent) {
+				/*
+				 * Children need to know only once that gesture was taken away from them.
+				 * Event itself is turned into cancel for a moment, as ViewGroup does, so nothing is copied
+				 */
+				final int action = ev.getAction();
+				ev.setAction(MotionEvent.ACTION_CANCEL);
+				super.dispatchTouchEvent(ev);
+				ev.setAction(action);
+				
+				mCancelSent = true;
 			}
 			
 			return true;
 		} else {
 			final int action = ev.getAction();
 			
-			Rect rect = new Rect();
-			View menu = getChildAt(0);
-			menu.getHitRect(rect);
+			View menu = mMenuView;
+			menu.getHitRect(mHitRect);
 			
-			if(!rect.contains((int) ev.getX(), (int) ev.getY())) {
+			if(!mHitRect.contains((int) ev.getX(), (int) ev.getY())) {
 				if (action == MotionEvent.ACTION_UP && mCloseOnRelease && !mDispatchWhenOpened) {
 					close();
 					mCloseOnRelease = false;
@@ -503,226 +1491,1047 @@ public class SlideHolder extends FrameLayout {
 			return false;
 		}
 		
-		float x = ev.getX();
+		final int action = ev.getAction();
 		
-		if(ev.getAction() == MotionEvent.ACTION_DOWN) {
-			mHistoricalX = (int) x;
+		if(action == MotionEvent.ACTION_DOWN) {
+			mController.onDown(ev.getX(), ev.getEventTime());
+			
+			mDownX = ev.getX();
+			mDownY = ev.getY();
+			mDownEdgeDirection = hasBothMenus() ? getEdgeDirection(mDownX) : 0;
+			mPrewarmedOnDown = isPrewarmTouch(mDownX) && prewarmSnapshot();
+			
+			if(mController.getMode() == MODE_READY && isEdgeTouch(mDownX)) {
+				/*
+				 * Slide is likely, menu shouldn't wait for the first frame anymore
+				 */
+				startMenuInflation();
+			}
 			
 			return true;
 		}
 		
-		if(ev.getAction() == MotionEvent.ACTION_MOVE) {
-
-			float diff = x - mHistoricalX;
-
-			if((mDirection*diff > 50 && mMode == MODE_READY) || (mDirection*diff < -50 && mMode == MODE_FINISHED)) {
-				mHistoricalX = (int) x;
-				
-				initSlideMode();
-			} else if(mMode == MODE_SLIDE) {
-				mOffset += diff;
-				
-				mHistoricalX = (int) x;
+		if(action == MotionEvent.ACTION_MOVE && mController.getMode() != MODE_SLIDE) {
+			final float dx = Math.abs(ev.getX() - mDownX);
+			final float dy = Math.abs(ev.getY() - mDownY);
+			
+			if(dy > mScrollSlop && dy > dx) {
+				onVerticalScroll();
 				
-				if(!isSlideAllowed()) {
-					finishSlide();
-				}
-			} else {
+				return false;
+			}
+			
+			if(mController.getMode() == MODE_READY && dy >= dx) {
+				/*
+				 * Gesture is not horizontal yet, so it can't start the slide
+				 */
+				return false;
+			}
+			
+			if(mController.getMode() == MODE_READY && mDownEdgeDirection*(ev.getX() - mDownX) < 0) {
+				/*
+				 * Swipe from the edge can open only the menu of that edge
+				 */
 				return false;
 			}
 		}
 		
-		if(ev.getAction() == MotionEvent.ACTION_UP) {
-			if(mMode == MODE_SLIDE) {
-				finishSlide();
+		if(action != MotionEvent.ACTION_MOVE && action != MotionEvent.ACTION_UP) {
+			return mController.getMode() == MODE_SLIDE;
+		}
+		
+		/*
+		 * Move events are batched, so we need all the samples for precise velocity
+		 */
+		final int historySize = ev.getHistorySize();
+		for(int i = 0; i < historySize; i++) {
+			mController.addHistoricalSample(ev.getHistoricalX(i), ev.getHistoricalEventTime(i));
+		}
+		
+		if(action == MotionEvent.ACTION_MOVE) {
+			final int result = mController.onMove(ev.getX(), ev.getEventTime());
+			
+			if(result == SlideController.RESULT_NONE) {
+				return false;
 			}
 			
-			mCloseOnRelease = false;
+			handleControllerResult(result);
 			
-			return false;
+			return mController.getMode() == MODE_SLIDE;
 		}
 		
-		return mMode == MODE_SLIDE;
+		handleControllerResult(mController.onUp(ev.getX(), ev.getEventTime()));
+		
+		mCloseOnRelease = false;
+		
+		return false;
 	}
 	
-	@Override
-	public boolean onTouchEvent(MotionEvent ev) {
-		boolean handled = handleTouchEvent(ev);
+	private void onVerticalScroll() {
+		if(mController.getMode() != MODE_READY) {
+			mPrewarmedOnDown = false;
+			
+			return;
+		}
 		
-		invalidate();
+		/*
+		 * Rest of the gesture belongs to main layout
+		 */
+		mTrackGesture = false;
 		
-		return handled;
+		if(mPrewarmedOnDown) {
+			mPrewarmedOnDown = false;
+			
+			/*
+			 * Main layout is going to change anyway. Bitmap just goes back to the pool
+			 */
+			mSnapshotFresh = false;
+			releaseCachedBitmap();
+			
+			if(mRasterizer != null) {
+				mRasterizer.discard();
+			}
+		}
 	}
 	
-	private void initSlideMode() {
-		mCloseOnRelease = false;
+	/*
+	 * Redraws only the part of the holder which is changed by the move of main layout:
+	 * area of menu which was covered or uncovered, and main layout itself
+	 */
+	private void invalidateOffset() {
+		final float offset = mController.getOffset();
 		
-		View v = getChildAt(1);
+		if(offset == mInvalidatedOffset) {
+			return;
+		}
+		
+		final float from = Math.min(offset, mInvalidatedOffset);
+		final float to = Math.max(offset, mInvalidatedOffset);
+		
+		mInvalidatedOffset = offset;
+		
+		if(mRevealEffect != null || hasDecorations()) {
+			/*
+			 * Effects and scrim change the whole menu
+			 */
+			invalidate();
+			
+			return;
+		}
 		
-		if(mMode == MODE_READY) {
-			mStartOffset = 0;
-			mEndOffset = mDirection*getChildAt(0).getWidth();
+		if(mController.getDirection() == DIRECTION_LEFT) {
+			invalidate((int) Math.floor(from), 0, getWidth(), getHeight());
 		} else {
-			mStartOffset = mDirection*getChildAt(0).getWidth();
-			mEndOffset = 0;
+			invalidate(0, 0, getWidth() + (int) Math.ceil(to), getHeight());
 		}
+	}
+	
+	private void handleControllerResult(int result) {
+		switch(result) {
+		case SlideController.RESULT_SLIDE_STARTED:
+			prepareSlideRendering();
+			
+			mInvalidatedOffset = mController.getOffset();
+			invalidate();
+			break;
+		case SlideController.RESULT_OFFSET_CHANGED:
+			invalidateOffset();
+			break;
+		case SlideController.RESULT_SETTLING:
+			mSlideAnimator.start();
+			break;
+		case SlideController.RESULT_OPENED:
+			completeOpening();
+			break;
+		case SlideController.RESULT_CLOSED:
+			completeClosing();
+			break;
+		}
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent ev) {
+		return handleTouchEvent(ev);
+	}
+	
+	private void initSlideMode() {
+		mController.startSlide();
 		
-		mOffset = mStartOffset;
+		prepareSlideRendering();
+	}
+	
+	/**
+	 * Prepares rendering of main layout for slide which was just started by controller
+	 */
+	private void prepareSlideRendering() {
+		mCloseOnRelease = false;
+		mCancelSent = false;
 		
-		if(mCachedBitmap == null || mCachedBitmap.isRecycled() || mCachedBitmap.getWidth() != v.getWidth()) {
-			mCachedBitmap = Bitmap.createBitmap(v.getWidth(), v.getHeight(), Bitmap.Config.ARGB_8888);
-			mCachedCanvas = new Canvas(mCachedBitmap);
-		} else {
-			mCachedCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
+		if(mMetrics != null) {
+			mMetrics.reset();
 		}
 		
+		View v = getChildAt(1);
+		
 		v.setVisibility(View.VISIBLE);
 		
-		mCachedCanvas.translate(-v.getScrollX(), -v.getScrollY());
-		v.draw(mCachedCanvas);
+		restoreQuality();
+		
+		mActiveSnapshotConfig = resolveSnapshotConfig(v);
+		mActiveRenderMode = resolveRenderMode(mActiveSnapshotConfig != null);
+		
+		if(mActiveRenderMode == RENDER_MODE_SNAPSHOT) {
+			long start = System.nanoTime();
+			
+			if(!mSnapshotFresh || !isSnapshotSuitable(v)) {
+				prepareSnapshot(v);
+			}
+			
+			mSnapshotFresh = false;
+			mPrewarmedOnDown = false;
+			mRecapturedPixels = 0;
+			mTotalRecapturedPixels = 0;
+			
+			mRefreshScheduler.setFrameBudget(mFrameIntervalNanos);
+			mRefreshScheduler.reset(System.nanoTime());
+			
+			final long captureCost = System.nanoTime() - start;
+			mCaptureNanos = averageCost(mCaptureNanos, captureCost);
+			
+			if(mMetrics != null) {
+				mMetrics.onCapture(captureCost);
+			}
+		} else {
+			/*
+			 * Snapshot is not needed anymore, so don't hold its memory
+			 */
+			releaseCachedBitmap();
+			
+			if(mActiveRenderMode == RENDER_MODE_HARDWARE_LAYER) {
+				mSavedLayerType = v.getLayerType();
+				v.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+			}
+		}
 		
-		mMode = MODE_SLIDE;
+		/*
+		 * Direction may have been just resolved by the gesture
+		 */
+		selectMenu();
 		
 		mMenuView.setVisibility(View.VISIBLE);
+		
+		prepareMenuCache(mMenuView);
 	}
 	
-	private boolean isSlideAllowed() {
-		return (mDirection*mEndOffset > 0 && mDirection*mOffset < mDirection*mEndOffset && mDirection*mOffset >= mDirection*mStartOffset)
-				|| (mEndOffset == 0 && mDirection*mOffset > mDirection*mEndOffset && mDirection*mOffset <= mDirection*mStartOffset);
+	/*
+	 * Makes sure that snapshot matches current size and quality and captures main layout into it
+	 */
+	private void prepareSnapshot(View v) {
+		if(mAsyncSnapshot) {
+			if(mCachedBitmap != null && (mCachedBitmap.getWidth() != Math.max(1, v.getWidth() / mCachedBitmapScale)
+					|| mCachedBitmap.getHeight() != Math.max(1, v.getHeight() / mCachedBitmapScale))) {
+				/*
+				 * Previous snapshot doesn't match main layout anymore, so it can't be shown meanwhile
+				 */
+				releaseCachedBitmap();
+			}
+			
+			mSnapshotStale = !startRasterization(v);
+			mRecapturedPixels = 0;
+			
+			return;
+		}
+		
+		if(!isSnapshotSuitable(v)) {
+			releaseCachedBitmap();
+			
+			mCachedBitmap = SnapshotBitmapPool.getInstance().acquire(
+					Math.max(1, v.getWidth() / mSnapshotScale), Math.max(1, v.getHeight() / mSnapshotScale), mActiveSnapshotConfig);
+			mCachedCanvas.setBitmap(mCachedBitmap);
+			
+			if(mMetrics != null) {
+				mMetrics.setCachedBytes(SnapshotBitmapPool.getBytes(mCachedBitmap));
+			}
+		}
+		
+		mCachedBitmapScale = mSnapshotScale;
+		captureMain(v, false);
+		
+		mRecapturedPixels = 0;
+		mSnapshotStale = false;
 	}
 	
-	private void completeOpening() {
-		mOffset = mDirection*mMenuView.getWidth();
-		requestLayout();
+	/**
+	 * Records main layout and hands it over to worker thread
+	 * 
+	 * @return false if rasterizer is still busy with previous snapshot
+	 */
+	private boolean startRasterization(View main) {
+		if(mRasterizer == null) {
+			mRasterizer = new SnapshotRasterizer(mRasterizedRunnable);
+		}
+		
+		if(mRasterizer.isBusy()) {
+			return false;
+		}
+		
+		final int width = main.getWidth();
+		final int height = main.getHeight();
+		
+		Canvas canvas = mRasterizer.beginRecording(width, height);
+		canvas.translate(-main.getScrollX(), -main.getScrollY());
+		main.draw(canvas);
+		mRasterizer.endRecording();
+		
+		Bitmap target = SnapshotBitmapPool.getInstance().acquire(
+				Math.max(1, width / mSnapshotScale), Math.max(1, height / mSnapshotScale), mActiveSnapshotConfig);
+		mRasterizer.rasterize(target, mSnapshotScale, mActiveSnapshotConfig != Bitmap.Config.RGB_565);
+		
+		final int pixels = target.getWidth() * target.getHeight();
+		mRecapturedPixels += pixels;
+		mTotalRecapturedPixels += pixels;
 		
-		post(new Runnable() {
+		mDirtyRect.setEmpty();
+		
+		return true;
+	}
+	
+	/*
+	 * Rasterized snapshot replaces the current one, which goes back to the pool
+	 */
+	private final Runnable mRasterizedRunnable = new Runnable() {
+		
+		@Override
+		public void run() {
+			if(mRasterizer == null) {
+				return;
+			}
+			
+			final int scale = mRasterizer.getResultScale();
+			Bitmap result = mRasterizer.takeResult();
+			
+			if(result == null) {
+				return;
+			}
+			
+			releaseCachedBitmap();
+			
+			mCachedBitmap = result;
+			mCachedBitmapScale = scale;
+			mCachedCanvas.setBitmap(mCachedBitmap);
+			
+			if(mMetrics != null) {
+				mMetrics.setCachedBytes(SnapshotBitmapPool.getBytes(mCachedBitmap));
+			}
 			
-			@Override
-			public void run() {
-				mMode = MODE_FINISHED;
-				mMenuView.setVisibility(View.VISIBLE);
+			if(mController.getMode() == MODE_SLIDE) {
+				invalidate();
 			}
-		});
+		}
+	};
+	
+	/*
+	 * Hardware canvas plays pictures only since M
+	 */
+	private static boolean canDrawPicture(Canvas canvas) {
+		return Build.VERSION.SDK_INT >= Build.VERSION_CODES.M || Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB
+				|| !canvas.isHardwareAccelerated();
+	}
+	
+	private boolean isSnapshotSuitable(View v) {
+		return mCachedBitmap != null && !mCachedBitmap.isRecycled() && SnapshotBitmapPool.isSameFormat(mCachedBitmap, mActiveSnapshotConfig)
+				&& mCachedBitmap.getWidth() == Math.max(1, v.getWidth() / mSnapshotScale)
+				&& mCachedBitmap.getHeight() == Math.max(1, v.getHeight() / mSnapshotScale);
+	}
+	
+	private boolean isPrewarmTouch(float x) {
+		if(!mPrewarmEnabled || mAlwaysOpened) {
+			return false;
+		}
 		
-		if(mListener != null) {
-			mListener.onSlideCompleted(true);
+		if(mController.getMode() == MODE_FINISHED) {
+			/*
+			 * Any touch may close the menu
+			 */
+			return true;
 		}
+		
+		return isEdgeTouch(x);
 	}
 	
-	private Animation.AnimationListener mOpenListener = new Animation.AnimationListener() {
+	private boolean isEdgeTouch(float x) {
+		final float edge = mEdgeSize*mDensity;
 		
-		@Override
-		public void onAnimationStart(Animation animation) {}
+		if(hasBothMenus()) {
+			return x < edge || x > getWidth() - edge;
+		}
 		
-		@Override
-		public void onAnimationRepeat(Animation animation) {}
+		return mController.getDirection() == DIRECTION_LEFT ? x < edge : x > getWidth() - edge;
+	}
+	
+	/**
+	 * 
+	 * @return DIRECTION_LEFT or DIRECTION_RIGHT if touch is at the left or right edge, 0 otherwise
+	 */
+	private int getEdgeDirection(float x) {
+		final float edge = mEdgeSize*mDensity;
+		
+		if(x < edge) {
+			return DIRECTION_LEFT;
+		}
+		
+		return x > getWidth() - edge ? DIRECTION_RIGHT : 0;
+	}
+	
+	/**
+	 * Captures snapshot of main layout outside of slide, if slide is going to use it
+	 * 
+	 * @return true if snapshot is ready
+	 */
+	private boolean prewarmSnapshot() {
+		if(mController.getMode() == MODE_SLIDE) {
+			return false;
+		}
+		
+		View v = getChildAt(1);
+		
+		if(v.getWidth() <= 0 || v.getHeight() <= 0) {
+			return false;
+		}
+		
+		Bitmap.Config config = resolveSnapshotConfig(v);
+		
+		if(config == null || resolveRenderMode(true) != RENDER_MODE_SNAPSHOT) {
+			return false;
+		}
+		
+		if(mSnapshotFresh && config == mActiveSnapshotConfig && isSnapshotSuitable(v)) {
+			return true;
+		}
+		
+		restoreQuality();
+		
+		mActiveSnapshotConfig = config;
+		prepareSnapshot(v);
+		mSnapshotFresh = !mSnapshotStale;
+		
+		return true;
+	}
+	
+	/*
+	 * Snapshot is refreshed in advance only if it's already held, so
+	 * we don't take memory from apps which don't slide
+	 */
+	private void onMainContentChanged() {
+		mSnapshotFresh = false;
+		
+		if(!mPrewarmEnabled || mCachedBitmap == null) {
+			return;
+		}
+		
+		mContentChangedMillis = SystemClock.uptimeMillis();
+		
+		if(!mPrewarmPending) {
+			mPrewarmPending = true;
+			postDelayed(mPrewarmQuietRunnable, PREWARM_QUIET_MILLIS);
+		}
+	}
+	
+	private final Runnable mPrewarmQuietRunnable = new Runnable() {
 		
 		@Override
-		public void onAnimationEnd(Animation animation) {
-			completeOpening();
+		public void run() {
+			final long quiet = SystemClock.uptimeMillis() - mContentChangedMillis;
+			
+			if(quiet < PREWARM_QUIET_MILLIS) {
+				postDelayed(this, PREWARM_QUIET_MILLIS - quiet);
+			} else {
+				Looper.myQueue().addIdleHandler(mPrewarmIdleHandler);
+			}
 		}
 	};
 	
-	private void completeClosing() {
-		mOffset = 0;
-		requestLayout();
+	private final MessageQueue.IdleHandler mPrewarmIdleHandler = new MessageQueue.IdleHandler() {
 		
-		post(new Runnable() {
+		@Override
+		public boolean queueIdle() {
+			mPrewarmPending = false;
 			
-			@Override
-			public void run() {
-				mMode = MODE_READY;
-				mMenuView.setVisibility(View.GONE);
+			if(!mSnapshotFresh && mCachedBitmap != null) {
+				prewarmSnapshot();
 			}
-		});
+			
+			return false;
+		}
+	};
+	
+	private void onJank(int frames) {
+		if(!mAdaptiveQuality || mActiveRenderMode != RENDER_MODE_SNAPSHOT || mQualityLevel == QUALITY_LOW_FORMAT) {
+			return;
+		}
 		
-		if(mListener != null) {
-			mListener.onSlideCompleted(false);
+		mJankFrames += frames;
+		
+		if(mJankFrames < JANK_FRAMES_PER_QUALITY_STEP) {
+			return;
+		}
+		
+		mJankFrames = 0;
+		
+		if(mQualityLevel == QUALITY_HALF_RESOLUTION && getLowerSnapshotConfig() == null) {
+			/*
+			 * Format step would recapture snapshot without saving anything
+			 */
+			return;
+		}
+		
+		mQualityLevel++;
+		
+		switch(mQualityLevel) {
+		case QUALITY_NO_FILTER:
+			mCachedPaint.setDither(false);
+			break;
+		case QUALITY_HALF_RESOLUTION:
+			mSnapshotScale = 2;
+			mSnapshotStale = true;
+			break;
+		case QUALITY_LOW_FORMAT:
+			mActiveSnapshotConfig = getLowerSnapshotConfig();
+			mSnapshotStale = true;
+			break;
 		}
 	}
 	
-	private Animation.AnimationListener mCloseListener = new Animation.AnimationListener() {
+	/**
+	 * 
+	 * @return format which takes less memory than current one, or null if there is no such format for main layout
+	 */
+	private Bitmap.Config getLowerSnapshotConfig() {
+		if(mActiveSnapshotConfig != Bitmap.Config.ARGB_8888) {
+			return null;
+		}
 		
-		@Override
-		public void onAnimationStart(Animation animation) {}
+		if(getChildAt(1).isOpaque()) {
+			return Bitmap.Config.RGB_565;
+		}
 		
-		@Override
-		public void onAnimationRepeat(Animation animation) {}
+		return SnapshotBitmapPool.getBytesPerPixel(Bitmap.Config.ARGB_4444) < SnapshotBitmapPool.getBytesPerPixel(Bitmap.Config.ARGB_8888)
+				? Bitmap.Config.ARGB_4444 : null;
+	}
+	
+	/*
+	 * Quality is lowered only for the slide in which frames were dropped
+	 */
+	private void restoreQuality() {
+		mQualityLevel = QUALITY_FULL;
+		mJankFrames = 0;
+		mSnapshotScale = 1;
+		mSnapshotStale = false;
 		
-		@Override
-		public void onAnimationEnd(Animation animation) {
-			completeClosing();
+		mCachedPaint.setDither(true);
+	}
+	
+	private void releaseCachedBitmap() {
+		if(mCachedBitmap == null) {
+			return;
 		}
-	};
+		
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			mCachedCanvas.setBitmap(null);
+		}
+		
+		SnapshotBitmapPool.getInstance().release(mCachedBitmap);
+		mCachedBitmap = null;
+		
+		if(mMetrics != null) {
+			mMetrics.setCachedBytes(0);
+		}
+	}
 	
-	private void finishSlide() {
-		if(mDirection*mEndOffset > 0) {
-			if(mDirection*mOffset > mDirection*mEndOffset/2) {
-				if(mDirection*mOffset > mDirection*mEndOffset) mOffset = mEndOffset;
-				
-				Animation anim = new SlideAnimation(mOffset, mEndOffset, mSpeed);
-				anim.setAnimationListener(mOpenListener);
-				startAnimation(anim);
-			} else {
-				if(mDirection*mOffset < mDirection*mStartOffset) mOffset = mStartOffset;
+	/**
+	 * Rasterizes main layout into the snapshot. If partial is true, only
+	 * invalidated part of main layout is redrawn (if known)
+	 */
+	private void captureMain(View main, boolean partial) {
+		final int width = main.getWidth();
+		final int height = main.getHeight();
+		
+		if(partial && !mDirtyRect.isEmpty()) {
+			mDirtyRect.offset(-main.getLeft(), -main.getTop());
+			
+			if(!mDirtyRect.intersect(0, 0, width, height)) {
+				/*
+				 * Nothing was changed inside of main layout
+				 */
+				mDirtyRect.setEmpty();
 				
-				Animation anim = new SlideAnimation(mOffset, mStartOffset, mSpeed);
-				anim.setAnimationListener(mCloseListener);
-				startAnimation(anim);
+				return;
 			}
 		} else {
-			if(mDirection*mOffset < mDirection*mStartOffset/2) {
-				if(mDirection*mOffset < mDirection*mEndOffset) mOffset = mEndOffset;
-				
-				Animation anim = new SlideAnimation(mOffset, mEndOffset, mSpeed);
-				anim.setAnimationListener(mCloseListener);
-				startAnimation(anim);
-			} else {
-				if(mDirection*mOffset > mDirection*mStartOffset) mOffset = mStartOffset;
-				
-				Animation anim = new SlideAnimation(mOffset, mStartOffset, mSpeed);
-				anim.setAnimationListener(mOpenListener);
-				startAnimation(anim);
+			mDirtyRect.set(0, 0, width, height);
+		}
+		
+		mCachedCanvas.save();
+		
+		if(mCachedBitmapScale != 1) {
+			mCachedCanvas.scale(1f / mCachedBitmapScale, 1f / mCachedBitmapScale);
+		}
+		
+		mCachedCanvas.clipRect(mDirtyRect);
+		
+		clearCachedBitmap();
+		
+		mCachedCanvas.translate(-main.getScrollX(), -main.getScrollY());
+		main.draw(mCachedCanvas);
+		mCachedCanvas.restore();
+		
+		final int pixels = mDirtyRect.width() * mDirtyRect.height() / (mCachedBitmapScale * mCachedBitmapScale);
+		mRecapturedPixels += pixels;
+		mTotalRecapturedPixels += pixels;
+		
+		mDirtyRect.setEmpty();
+	}
+	
+	@Override
+	public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+		if(mController.getMode() == MODE_SLIDE) {
+			/*
+			 * Dirty rect is relative to the child, so we move it
+			 * to our coordinates
+			 */
+			mInvalidRect.set(
+						dirty.left + location[0],
+						dirty.top + location[1],
+						dirty.right + location[0],
+						dirty.bottom + location[1]
+					);
+			
+			if(mActiveRenderMode == RENDER_MODE_SNAPSHOT && isMainInvalidation(location)) {
+				mDirtyRect.union(mInvalidRect);
+			}
+			
+			if(mMenuBitmap != null) {
+				View menu = mMenuView;
+				mMenuDirty |= mInvalidRect.intersect(menu.getLeft(), menu.getTop(), menu.getRight(), menu.getBottom());
+			}
+		} else if(mCachedBitmap != null && isMainInvalidation(location)) {
+			/*
+			 * Changes of menu (e.g. scrolling of its list) don't make snapshot of main layout stale
+			 */
+			onMainContentChanged();
+		}
+		
+		return super.invalidateChildInParent(location, dirty);
+	}
+	
+	/**
+	 * 
+	 * @param location - position of the child which passes invalidation to us
+	 * @return true if invalidation comes from main layout
+	 */
+	private boolean isMainInvalidation(int[] location) {
+		View main = getChildAt(1);
+		
+		if(location[0] != main.getLeft() || location[1] != main.getTop()) {
+			return false;
+		}
+		
+		View menu = mMenuView;
+		
+		if(menu == null || menu.getVisibility() != View.VISIBLE || menu.getLeft() != main.getLeft() || menu.getTop() != main.getTop()) {
+			return true;
+		}
+		
+		/*
+		 * Menu is at the same position (left menu is being opened). Main layout is marked dirty
+		 * before invalidation reaches us, older versions can't tell them apart at all
+		 */
+		return Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB || main.isDirty();
+	}
+	
+	private void clearCachedBitmap() {
+		/*
+		 * Opaque main layout overwrites every pixel anyway
+		 */
+		if(mActiveSnapshotConfig != Bitmap.Config.RGB_565) {
+			mCachedCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
+		}
+	}
+	
+	private Bitmap.Config resolveSnapshotConfig(View v) {
+		int pixels = v.getWidth() * v.getHeight();
+		
+		if(mSnapshotConfig != null) {
+			return fitsSnapshotBudget(pixels, mSnapshotConfig) ? mSnapshotConfig : null;
+		}
+		
+		if(v.isOpaque()) {
+			return fitsSnapshotBudget(pixels, Bitmap.Config.RGB_565) ? Bitmap.Config.RGB_565 : null;
+		}
+		
+		if(fitsSnapshotBudget(pixels, Bitmap.Config.ARGB_8888)) {
+			return Bitmap.Config.ARGB_8888;
+		}
+		
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			/*
+			 * ARGB_4444 takes as much memory as ARGB_8888 there, so layer or live drawing is used instead
+			 */
+			return null;
+		}
+		
+		return fitsSnapshotBudget(pixels, Bitmap.Config.ARGB_4444) ? Bitmap.Config.ARGB_4444 : null;
+	}
+	
+	private boolean fitsSnapshotBudget(int pixels, Bitmap.Config config) {
+		return mSnapshotMemoryBudget <= 0
+				|| (long) pixels * SnapshotBitmapPool.getBytesPerPixel(config) <= mSnapshotMemoryBudget;
+	}
+	
+	private int resolveRenderMode(boolean snapshotAllowed) {
+		if(!snapshotAllowed) {
+			/*
+			 * Snapshot doesn't fit into the budget
+			 */
+			return Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB && isHardwareAccelerated()
+					? RENDER_MODE_HARDWARE_LAYER : RENDER_MODE_LIVE;
+		}
+		
+		if(Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) {
+			/*
+			 * Layers and reliable dirty tracking are not available on old versions
+			 */
+			return RENDER_MODE_SNAPSHOT;
+		}
+		
+		if(mRenderMode != RENDER_MODE_AUTO) {
+			return mRenderMode;
+		}
+		
+		/*
+		 * Single capture costs about the same as single drawing of main layout,
+		 * so it's used as an estimation until real drawing was measured
+		 */
+		long drawCost = mLiveDrawNanos > 0 ? mLiveDrawNanos : mCaptureNanos;
+		
+		if(drawCost > 0 && drawCost < LIVE_DRAW_BUDGET_NANOS) {
+			return RENDER_MODE_LIVE;
+		}
+		
+		if(isHardwareAccelerated()) {
+			return RENDER_MODE_HARDWARE_LAYER;
+		}
+		
+		return RENDER_MODE_SNAPSHOT;
+	}
+	
+	private void exitRenderMode() {
+		if(mActiveRenderMode == RENDER_MODE_HARDWARE_LAYER) {
+			getChildAt(1).setLayerType(mSavedLayerType, null);
+		}
+		
+		restoreQuality();
+		
+		releaseMenuBitmap();
+		
+		/*
+		 * Snapshot was left in the state of slide, so it's refreshed for the next one
+		 */
+		onMainContentChanged();
+	}
+	
+	private void prepareMenuCache(View menu) {
+		if(!mMenuCacheEnabled || menu.getWidth() <= 0 || menu.getHeight() <= 0) {
+			releaseMenuBitmap();
+			
+			return;
+		}
+		
+		Bitmap.Config config = menu.isOpaque() ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+		
+		if(mMenuBitmap == null || mMenuBitmap.getConfig() != config
+				|| mMenuBitmap.getWidth() != menu.getWidth() || mMenuBitmap.getHeight() != menu.getHeight()) {
+			releaseMenuBitmap();
+			
+			if(mMenuCanvas == null) {
+				mMenuCanvas = new Canvas();
 			}
+			
+			mMenuBitmap = SnapshotBitmapPool.getInstance().acquire(menu.getWidth(), menu.getHeight(), config);
+			mMenuCanvas.setBitmap(mMenuBitmap);
+		}
+		
+		captureMenu(menu);
+	}
+	
+	private void captureMenu(View menu) {
+		if(mMenuBitmap.getConfig() != Bitmap.Config.RGB_565) {
+			mMenuCanvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
+		}
+		
+		mMenuCanvas.save();
+		mMenuCanvas.translate(-menu.getScrollX(), -menu.getScrollY());
+		menu.draw(mMenuCanvas);
+		mMenuCanvas.restore();
+		
+		mMenuDirty = false;
+	}
+	
+	private void releaseMenuBitmap() {
+		if(mMenuBitmap == null) {
+			return;
+		}
+		
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			mMenuCanvas.setBitmap(null);
+		}
+		
+		SnapshotBitmapPool.getInstance().release(mMenuBitmap);
+		mMenuBitmap = null;
+	}
+	
+	/*
+	 * Asks the display, which may be a binder call, so it's done on attach only, not on every slide
+	 */
+	private long queryFrameIntervalNanos() {
+		float refreshRate = 60;
+		
+		WindowManager wm = (WindowManager) getContext().getSystemService(Context.WINDOW_SERVICE);
+		if(wm != null && wm.getDefaultDisplay() != null) {
+			refreshRate = wm.getDefaultDisplay().getRefreshRate();
+		}
+		
+		if(refreshRate < 10) {
+			/*
+			 * Some devices are reporting nonsense
+			 */
+			refreshRate = 60;
+		}
+		
+		return (long) (1000000000L / refreshRate);
+	}
+	
+	private static long averageCost(long average, long sample) {
+		if(average == 0) {
+			return sample;
+		}
+		
+		return (average * 3 + sample) / 4;
+	}
+	
+	/*
+	 * Resting state is switched at once, so the only traversal after slide
+	 * is the layout which moves main layout to its final position
+	 */
+	private void completeOpening() {
+		exitRenderMode();
+		mController.completeSlide(true);
+		
+		applyInflatedMenus();
+		requestLayout();
+		
+		/*
+		 * Main layout may end up at the same bounds (e.g. slide settled back to opened state),
+		 * so layout alone doesn't replace the last frame of slide
+		 */
+		invalidate();
+		
+		if(mListener != null) {
+			mListener.onSlideCompleted(true);
 		}
 	}
 	
+	private void completeClosing() {
+		exitRenderMode();
+		mController.completeSlide(false);
+		mMenuView.setVisibility(View.GONE);
+		restoreDirection();
+		
+		applyInflatedMenus();
+		requestLayout();
+		invalidate();
+		
+		if(mListener != null) {
+			mListener.onSlideCompleted(false);
+		}
+	}
+	
+	/**
+	 * 
+	 * @param dpPerSecond - minimum velocity of release (in dp per second) which finishes slide in the direction of gesture regardless of menu position
+	 */
+	public void setFlingVelocity(float dpPerSecond) {
+		mFlingVelocity = dpPerSecond;
+		mController.setFlingVelocity(mFlingVelocity*mDensity);
+	}
+	
+	public float getFlingVelocity() {
+		return mFlingVelocity;
+	}
+	
 	public void setSpeed(float speed) {
 		if (speed <= 0) {
 			return;
 		} 
-		mSpeed = speed;
+		mController.setSpeed(speed);
 	}
 	
 	
-	private class SlideAnimation extends Animation {
-
-		private float mStart;
-		private float mEnd;
+	/**
+	 * 
+	 * @return how many frames were dropped during current (or last) slide animation
+	 */
+	public int getDroppedFrames() {
+		return mDroppedFrames;
+	}
+	
+	private void onAnimationFrame(long frameDeltaNanos) {
+		/*
+		 * Frame which came later than 1.5 of frame interval means
+		 * that at least one frame was dropped
+		 */
+		if(frameDeltaNanos * 2 > mFrameIntervalNanos * 3) {
+			final int dropped = (int) ((frameDeltaNanos + mFrameIntervalNanos / 2) / mFrameIntervalNanos) - 1;
+			mDroppedFrames += dropped;
+			
+			if(mMetrics != null) {
+				mMetrics.onFramesDropped(dropped);
+			}
+			
+			onJank(dropped);
+		}
+	}
+	
+	/**
+	 * Delivers display frames to the controller while it animates (using Choreographer
+	 * where available), so offset is computed once per frame and causes exactly one invalidation
+	 */
+	private class SlideAnimator implements Runnable {
 		
-		public SlideAnimation(float fromX, float toX, float speed) {
-
-			mStart = fromX;
-			mEnd = toX;
+		private boolean mRunning = false;
+		private long mLastFrameNanos = -1;
+		
+		private FrameCallback mFrameCallback;
+		
+		public void start() {
+			mLastFrameNanos = -1;
+			mDroppedFrames = 0;
 			
-			setInterpolator(new DecelerateInterpolator());
-
-			float duration = Math.abs(mEnd - mStart) / speed;
-			setDuration((long) duration);
+			if(!mRunning) {
+				mRunning = true;
+				scheduleFrame();
+			}
 		}
 		
-		@Override
-		protected void applyTransformation(float interpolatedTime, Transformation t) {
-			super.applyTransformation(interpolatedTime, t);
+		/**
+		 * Jumps to the end of animation
+		 */
+		public void finish() {
+			if(!mRunning) {
+				return;
+			}
+			
+			unscheduleFrame();
+			mRunning = false;
+			
+			handleControllerResult(mController.finishAnimation());
+		}
+		
+		public void doFrame(long frameTimeNanos) {
+			if(!mRunning) {
+				return;
+			}
+			
+			if(mLastFrameNanos >= 0) {
+				onAnimationFrame(frameTimeNanos - mLastFrameNanos);
+			}
+			mLastFrameNanos = frameTimeNanos;
 			
-			float offset = (mEnd - mStart) * interpolatedTime + mStart;
-			mOffset = (int) offset;
+			final int result = mController.onAnimationFrame(frameTimeNanos);
+			
+			if(result == SlideController.RESULT_OFFSET_CHANGED) {
+				invalidateOffset();
+				scheduleFrame();
+			} else {
+				/*
+				 * Last frame is drawn once, when slide is completed
+				 */
+				mRunning = false;
+				handleControllerResult(result);
+			}
+		}
+		
+		@Override
+		public void run() {
+			doFrame(System.nanoTime());
+		}
+		
+		private void scheduleFrame() {
+			if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+				if(mFrameCallback == null) {
+					mFrameCallback = new FrameCallback(this);
+				}
+				
+				Choreographer.getInstance().postFrameCallback(mFrameCallback);
+			} else {
+				postDelayed(this, mFrameIntervalNanos / 1000000L);
+			}
+		}
+		
+		private void unscheduleFrame() {
+			if(mFrameCallback != null) {
+				Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+			}
 			
-			postInvalidate();
+			removeCallbacks(this);
 		}
 		
 	}
 	
+	/*
+	 * Separate class, so old versions never load Choreographer
+	 */
+	private static class FrameCallback implements Choreographer.FrameCallback {
+		
+		private final SlideAnimator mAnimator;
+		
+		public FrameCallback(SlideAnimator animator) {
+			mAnimator = animator;
+		}
+		
+		@Override
+		public void doFrame(long frameTimeNanos) {
+			mAnimator.doFrame(frameTimeNanos);
+		}
+		
+	}
+	
+	/**
+	 * Transformation of main layout and menu which depends on how far menu is opened.
+	 * Called on every frame of slide, so implementations shouldn't allocate anything
+	 */
+	public static interface RevealEffect {
+		/**
+		 * 
+		 * @param fraction - 0 when menu is closed, 1 when it's opened
+		 * @param direction - DIRECTION_LEFT or DIRECTION_RIGHT
+		 * @param width - width of main layout
+		 * @param height - height of main layout
+		 * @param matrix - reset matrix to fill, in coordinates of main layout
+		 */
+		public void transformMain(float fraction, int direction, int width, int height, Matrix matrix);
+		
+		/**
+		 * 
+		 * @param fraction - 0 when menu is closed, 1 when it's opened
+		 * @param direction - DIRECTION_LEFT or DIRECTION_RIGHT
+		 * @param width - width of menu
+		 * @param height - height of menu
+		 * @param matrix - reset matrix to fill, in coordinates of menu
+		 */
+		public void transformMenu(float fraction, int direction, int width, int height, Matrix matrix);
+	}
+	
 	public static interface OnSlideListener {
 		public void onSlideCompleted(boolean opened);
 	}
@@ -0,0 +1,143 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+/**
+ * Performance metrics of the current (or last) slide of SlideHolder.
+ *
+ * Values are reset when slide starts (except memory ones), so it's a good idea to read them
+ * from OnSlideListener.onSlideCompleted(). All the data is kept in primitive fields and fixed-size
+ * arrays, so collecting it doesn't allocate anything.
+ */
+public class SlideMetrics {
+	
+	/**
+	 * Amount of buckets in draw time histogram. Bucket i counts frames which took [i, i+1) milliseconds
+	 * to draw, last bucket counts all the slower frames
+	 */
+	public final static int HISTOGRAM_BUCKETS = 32;
+	
+	private final int[] mDrawTimeHistogram = new int[HISTOGRAM_BUCKETS];
+	
+	private long mCaptureTimeNanos = 0;
+	private int mRecaptureCount = 0;
+	private int mFrameCount = 0;
+	private long mMaxDrawTimeNanos = 0;
+	private int mDroppedFrames = 0;
+	
+	private int mCachedBytes = 0;
+	private int mPeakCachedBytes = 0;
+	
+	/**
+	 *
+	 * @return time spent on initial capture of main layout snapshot. 0 if snapshot wasn't used
+	 */
+	public long getCaptureTimeNanos() {
+		return mCaptureTimeNanos;
+	}
+	
+	/**
+	 *
+	 * @return how many times main layout was rasterized again into the snapshot during slide
+	 */
+	public int getRecaptureCount() {
+		return mRecaptureCount;
+	}
+	
+	public int getFrameCount() {
+		return mFrameCount;
+	}
+	
+	public long getMaxDrawTimeNanos() {
+		return mMaxDrawTimeNanos;
+	}
+	
+	/**
+	 *
+	 * @return amount of frames which took from bucket to bucket+1 milliseconds to draw
+	 */
+	public int getDrawTimeCount(int bucket) {
+		return mDrawTimeHistogram[bucket];
+	}
+	
+	public int getDroppedFrames() {
+		return mDroppedFrames;
+	}
+	
+	/**
+	 *
+	 * @return amount of bytes which are currently held by main layout snapshot
+	 */
+	public int getCachedBytes() {
+		return mCachedBytes;
+	}
+	
+	/**
+	 *
+	 * @return maximum amount of bytes which were held by main layout snapshot since metrics were enabled
+	 */
+	public int getPeakCachedBytes() {
+		return mPeakCachedBytes;
+	}
+	
+	void reset() {
+		for(int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+			mDrawTimeHistogram[i] = 0;
+		}
+		
+		mCaptureTimeNanos = 0;
+		mRecaptureCount = 0;
+		mFrameCount = 0;
+		mMaxDrawTimeNanos = 0;
+		mDroppedFrames = 0;
+	}
+	
+	void onCapture(long nanos) {
+		mCaptureTimeNanos = nanos;
+	}
+	
+	void onRecapture() {
+		mRecaptureCount++;
+	}
+	
+	void onFrameDrawn(long nanos) {
+		int bucket = (int) (nanos / 1000000L);
+		if(bucket >= HISTOGRAM_BUCKETS) {
+			bucket = HISTOGRAM_BUCKETS - 1;
+		}
+		
+		mDrawTimeHistogram[bucket]++;
+		mFrameCount++;
+		
+		if(nanos > mMaxDrawTimeNanos) {
+			mMaxDrawTimeNanos = nanos;
+		}
+	}
+	
+	void onFramesDropped(int count) {
+		mDroppedFrames += count;
+	}
+	
+	void setCachedBytes(int bytes) {
+		mCachedBytes = bytes;
+		
+		if(bytes > mPeakCachedBytes) {
+			mPeakCachedBytes = bytes;
+		}
+	}
+
+}
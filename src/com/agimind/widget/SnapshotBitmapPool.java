@@ -0,0 +1,227 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import java.util.ArrayList;
+
+import android.graphics.Bitmap;
+import android.os.Build;
+
+/**
+ * Process-wide pool of bitmaps which are used by all SlideHolders for their snapshots.
+ *
+ * Released bitmaps are kept until pool exceeds its size, then least recently used ones are evicted.
+ */
+public class SnapshotBitmapPool {
+	
+	/*
+	 * New bitmaps are allocated with sizes rounded up to this value, so they can
+	 * be reconfigured for slightly different sizes later (rotation, resizing of window)
+	 */
+	private final static int BUCKET_SIZE = 64;
+	
+	/*
+	 * Pooled bitmap is not reused if it's that much bigger than requested one
+	 */
+	private final static float MAX_WASTE = 1.5f;
+	
+	private static SnapshotBitmapPool sInstance;
+	
+	private final ArrayList<Bitmap> mBitmaps = new ArrayList<Bitmap>();
+	
+	private int mMaxSize;
+	private int mSize = 0;
+	
+	private int mHitCount = 0;
+	private int mMissCount = 0;
+	private int mEvictionCount = 0;
+	
+	public static synchronized SnapshotBitmapPool getInstance() {
+		if(sInstance == null) {
+			sInstance = new SnapshotBitmapPool((int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE));
+		}
+		
+		return sInstance;
+	}
+	
+	SnapshotBitmapPool(int maxSize) {
+		mMaxSize = maxSize;
+	}
+	
+	/**
+	 *
+	 * @param maxSize - maximum amount of bytes which could be held by bitmaps which are not in use
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		mMaxSize = maxSize;
+		
+		trimToSize(mMaxSize);
+	}
+	
+	public synchronized int getMaxSize() {
+		return mMaxSize;
+	}
+	
+	/**
+	 *
+	 * @return amount of bytes held by bitmaps which are not in use
+	 */
+	public synchronized int getSize() {
+		return mSize;
+	}
+	
+	public synchronized int getHitCount() {
+		return mHitCount;
+	}
+	
+	public synchronized int getMissCount() {
+		return mMissCount;
+	}
+	
+	public synchronized int getEvictionCount() {
+		return mEvictionCount;
+	}
+	
+	/**
+	 * Returns bitmap of exactly given size and config. Content of returned bitmap is undefined.
+	 */
+	public synchronized Bitmap acquire(int width, int height, Bitmap.Config config) {
+		Bitmap bitmap = findReusable(width, height, config);
+		
+		if(bitmap != null) {
+			mHitCount++;
+			
+			return bitmap;
+		}
+		
+		mMissCount++;
+		
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			bitmap = Bitmap.createBitmap(roundToBucket(width), roundToBucket(height), config);
+			bitmap.reconfigure(width, height, config);
+			
+			return bitmap;
+		}
+		
+		return Bitmap.createBitmap(width, height, config);
+	}
+	
+	/**
+	 * Gives bitmap back to the pool. Bitmap should not be used by caller after that.
+	 */
+	public synchronized void release(Bitmap bitmap) {
+		if(bitmap == null || bitmap.isRecycled() || !bitmap.isMutable()) {
+			return;
+		}
+		
+		mBitmaps.add(bitmap);
+		mSize += getBytes(bitmap);
+		
+		trimToSize(mMaxSize);
+	}
+	
+	/**
+	 * Evicts all pooled bitmaps. Good idea to call it from onTrimMemory() or onLowMemory()
+	 */
+	public synchronized void clear() {
+		trimToSize(0);
+	}
+	
+	private Bitmap findReusable(int width, int height, Bitmap.Config config) {
+		/*
+		 * Most recently used bitmaps are in the end of the list
+		 */
+		for(int i = mBitmaps.size() - 1; i >= 0; i--) {
+			Bitmap bitmap = mBitmaps.get(i);
+			
+			if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+				int required = width * height * getBytesPerPixel(config);
+				int allocated = bitmap.getAllocationByteCount();
+				
+				if(allocated < required || allocated > required * MAX_WASTE) {
+					continue;
+				}
+				
+				mBitmaps.remove(i);
+				mSize -= allocated;
+				
+				bitmap.reconfigure(width, height, config);
+				
+				return bitmap;
+			} else if(bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+				mBitmaps.remove(i);
+				mSize -= getBytes(bitmap);
+				
+				return bitmap;
+			}
+		}
+		
+		return null;
+	}
+	
+	private void trimToSize(int maxSize) {
+		while(mSize > maxSize && !mBitmaps.isEmpty()) {
+			Bitmap bitmap = mBitmaps.remove(0);
+			mSize -= getBytes(bitmap);
+			
+			bitmap.recycle();
+			mEvictionCount++;
+		}
+	}
+	
+	private static int roundToBucket(int size) {
+		return (size + BUCKET_SIZE - 1) / BUCKET_SIZE * BUCKET_SIZE;
+	}
+	
+	static int getBytes(Bitmap bitmap) {
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			return bitmap.getAllocationByteCount();
+		}
+		
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+	
+	static int getBytesPerPixel(Bitmap.Config config) {
+		switch(config) {
+		case ALPHA_8:
+			return 1;
+		case RGB_565:
+			return 2;
+		case ARGB_4444:
+			/*
+			 * ARGB_4444 bitmaps are silently created as ARGB_8888 since KitKat
+			 */
+			return Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT ? 4 : 2;
+		default:
+			return 4;
+		}
+	}
+	
+	/**
+	 *
+	 * @return true if bitmap has the same size of pixel as requested config. On KitKat and newer it's the only way
+	 * to compare them, because ARGB_4444 bitmap reports ARGB_8888 config
+	 */
+	static boolean isSameFormat(Bitmap bitmap, Bitmap.Config config) {
+		if(Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			return getBytesPerPixel(bitmap.getConfig()) == getBytesPerPixel(config);
+		}
+		
+		return bitmap.getConfig() == config;
+	}
+
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Picture;
+import android.graphics.PorterDuff.Mode;
+
+/**
+ * Plays recorded Picture of main layout into snapshot bitmap on a worker thread.
+ *
+ * Only one bitmap is rasterized at a time. It belongs to the worker until result is taken
+ * back on UI thread, while UI keeps drawing its previous snapshot, so neither thread waits for another.
+ * The same goes for the recording: worker plays its own copy of the picture, because older versions
+ * can't play one picture on two threads at once.
+ */
+class SnapshotRasterizer {
+	
+	private final Runnable mOnReady;
+	
+	/*
+	 * Recorded and played on UI thread only
+	 */
+	private final Picture mPicture = new Picture();
+	private boolean mRecorded = false;
+	
+	/*
+	 * Copy of the recording which is played by the worker
+	 */
+	private Picture mWorkerPicture;
+	
+	private Bitmap mTarget;
+	private int mTargetScale;
+	private boolean mTargetClear;
+	
+	private boolean mBusy = false;
+	private boolean mReady = false;
+	private boolean mDiscard = false;
+	
+	/**
+	 *
+	 * @param onReady - called on UI thread when result can be taken
+	 */
+	public SnapshotRasterizer(Runnable onReady) {
+		mOnReady = onReady;
+	}
+	
+	/**
+	 *
+	 * @return true if worker has a bitmap which is not taken back yet. New rasterization can't be started then
+	 */
+	public synchronized boolean isBusy() {
+		return mBusy || mReady;
+	}
+	
+	/**
+	 * Should be called on UI thread only if not busy
+	 */
+	public Canvas beginRecording(int width, int height) {
+		return mPicture.beginRecording(width, height);
+	}
+	
+	public void endRecording() {
+		mPicture.endRecording();
+		mRecorded = true;
+	}
+	
+	/**
+	 *
+	 * @return last recorded picture, which can be drawn while it's rasterized. Null if nothing was recorded
+	 */
+	public Picture getPicture() {
+		return mRecorded ? mPicture : null;
+	}
+	
+	/**
+	 * Starts rasterization of recorded picture
+	 *
+	 * @param target - bitmap which belongs to the worker until it's returned by takeResult()
+	 * @param scale - picture is scaled down by this factor
+	 * @param clear - if true, bitmap is cleared before drawing
+	 */
+	public synchronized void rasterize(Bitmap target, int scale, boolean clear) {
+		/*
+		 * Copy is made once per rasterization, not per frame
+		 */
+		mWorkerPicture = new Picture(mPicture);
+		mTarget = target;
+		mTargetScale = scale;
+		mTargetClear = clear;
+		mBusy = true;
+		mDiscard = false;
+		
+		BackgroundWorker.getHandler().post(mRasterizeRunnable);
+	}
+	
+	/**
+	 *
+	 * @return rasterized bitmap or null if it's not ready yet
+	 */
+	public synchronized Bitmap takeResult() {
+		if(!mReady) {
+			return null;
+		}
+		
+		Bitmap result = mTarget;
+		
+		mTarget = null;
+		mReady = false;
+		
+		return result;
+	}
+	
+	/**
+	 *
+	 * @return scale of the bitmap which is returned by takeResult()
+	 */
+	public synchronized int getResultScale() {
+		return mTargetScale;
+	}
+	
+	/**
+	 * Gives bitmap which is rasterized or not taken yet back to the pool
+	 */
+	public synchronized void discard() {
+		if(mBusy) {
+			mDiscard = true;
+		} else if(mReady) {
+			SnapshotBitmapPool.getInstance().release(mTarget);
+			
+			mTarget = null;
+			mReady = false;
+		}
+	}
+	
+	private final Runnable mRasterizeRunnable = new Runnable() {
+		
+		@Override
+		public void run() {
+			final Bitmap target;
+			final Picture picture;
+			final int scale;
+			final boolean clear;
+			
+			synchronized(SnapshotRasterizer.this) {
+				target = mTarget;
+				picture = mWorkerPicture;
+				scale = mTargetScale;
+				clear = mTargetClear;
+			}
+			
+			/*
+			 * Allocation is fine here, we are not on UI thread
+			 */
+			Canvas canvas = new Canvas(target);
+			
+			if(clear) {
+				canvas.drawColor(Color.TRANSPARENT, Mode.CLEAR);
+			}
+			
+			if(scale != 1) {
+				canvas.scale(1f / scale, 1f / scale);
+			}
+			
+			canvas.drawPicture(picture);
+			
+			synchronized(SnapshotRasterizer.this) {
+				mBusy = false;
+				mWorkerPicture = null;
+				
+				if(mDiscard) {
+					SnapshotBitmapPool.getInstance().release(mTarget);
+					
+					mTarget = null;
+					mDiscard = false;
+					
+					return;
+				}
+				
+				mReady = true;
+			}
+			
+			BackgroundWorker.getMainHandler().post(mOnReady);
+		}
+	};
+
+}
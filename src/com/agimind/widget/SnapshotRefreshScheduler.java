@@ -0,0 +1,120 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+/**
+ * Decides when changed main layout should be rasterized again into the snapshot during slide.
+ *
+ * Refresh is done only if it fits into the frame budget together with the rest of the frame,
+ * but not more often than maximum rate and not less often than minimum rate.
+ */
+class SnapshotRefreshScheduler {
+	
+	private final static long NANOS_PER_SECOND = 1000000000L;
+	
+	private long mFrameBudgetNanos = NANOS_PER_SECOND / 60;
+	private long mMinIntervalNanos = 0;
+	private long mMaxIntervalNanos = NANOS_PER_SECOND / 10;
+	
+	private boolean mStaticContent = false;
+	
+	private boolean mPending = false;
+	private long mLastRefreshNanos = 0;
+	private long mFrameCostNanos = 0;
+	private long mRefreshCostNanos = 0;
+	
+	/**
+	 *
+	 * @param minRate - refreshes per second which are done even if they don't fit into the frame budget. 0 means no such refreshes
+	 * @param maxRate - refreshes per second which are never exceeded. 0 means no limit
+	 */
+	public void setRefreshRate(float minRate, float maxRate) {
+		mMaxIntervalNanos = minRate > 0 ? (long) (NANOS_PER_SECOND / minRate) : 0;
+		mMinIntervalNanos = maxRate > 0 ? (long) (NANOS_PER_SECOND / maxRate) : 0;
+	}
+	
+	public void setFrameBudget(long nanos) {
+		mFrameBudgetNanos = nanos;
+	}
+	
+	public void setStaticContent(boolean staticContent) {
+		mStaticContent = staticContent;
+	}
+	
+	public boolean isStaticContent() {
+		return mStaticContent;
+	}
+	
+	/**
+	 * Should be called when snapshot was fully captured
+	 */
+	public void reset(long nowNanos) {
+		mPending = false;
+		mLastRefreshNanos = nowNanos;
+	}
+	
+	/**
+	 *
+	 * @param dirty - if true, content was changed since last refresh
+	 */
+	public boolean shouldRefresh(long nowNanos, boolean dirty) {
+		if(mStaticContent) {
+			return false;
+		}
+		
+		mPending |= dirty;
+		
+		if(!mPending) {
+			return false;
+		}
+		
+		final long sinceRefresh = nowNanos - mLastRefreshNanos;
+		
+		if(sinceRefresh < mMinIntervalNanos) {
+			return false;
+		}
+		
+		if(mMaxIntervalNanos > 0 && sinceRefresh >= mMaxIntervalNanos) {
+			return true;
+		}
+		
+		return mFrameCostNanos + mRefreshCostNanos <= mFrameBudgetNanos;
+	}
+	
+	public void onRefreshed(long nowNanos, long costNanos) {
+		mPending = false;
+		mLastRefreshNanos = nowNanos;
+		mRefreshCostNanos = average(mRefreshCostNanos, costNanos);
+	}
+	
+	/**
+	 *
+	 * @param costNanos - time spent on drawing of the frame, excluding refresh
+	 */
+	public void onFrameDrawn(long costNanos) {
+		mFrameCostNanos = average(mFrameCostNanos, costNanos);
+	}
+	
+	private static long average(long average, long sample) {
+		if(average == 0) {
+			return sample;
+		}
+		
+		return (average * 3 + sample) / 4;
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright dmitry.zaicew@gmail.com Dmitry Zaitsev
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.agimind.widget;
+
+/**
+ * Estimates horizontal pointer velocity from recent samples (including historical ones from batched events).
+ *
+ * Samples are kept in fixed-size ring buffer, so adding them doesn't allocate anything.
+ */
+class VelocityEstimator {
+	
+	private final static int CAPACITY = 20;
+	
+	/*
+	 * Samples older than that are not taken into account
+	 */
+	private final static long HORIZON_MILLIS = 100;
+	
+	private final long[] mTimes = new long[CAPACITY];
+	private final float[] mPositions = new float[CAPACITY];
+	
+	private int mHead = 0;
+	private int mCount = 0;
+	
+	public void clear() {
+		mHead = 0;
+		mCount = 0;
+	}
+	
+	public void addSample(long timeMillis, float x) {
+		mHead = (mHead + 1) % CAPACITY;
+		mTimes[mHead] = timeMillis;
+		mPositions[mHead] = x;
+		
+		if(mCount < CAPACITY) {
+			mCount++;
+		}
+	}
+	
+	/**
+	 *
+	 * @return velocity in pixels per second, least squares fit of samples within the horizon
+	 */
+	public float getVelocity() {
+		if(mCount < 2) {
+			return 0;
+		}
+		
+		final long newest = mTimes[mHead];
+		
+		float sumT = 0;
+		float sumX = 0;
+		float sumTT = 0;
+		float sumTX = 0;
+		int n = 0;
+		
+		for(int i = 0; i < mCount; i++) {
+			int index = (mHead - i + CAPACITY) % CAPACITY;
+			long age = newest - mTimes[index];
+			
+			if(age > HORIZON_MILLIS) {
+				break;
+			}
+			
+			/*
+			 * Time is relative to the newest sample, so values stay small
+			 */
+			float t = -age;
+			float x = mPositions[index] - mPositions[mHead];
+			
+			sumT += t;
+			sumX += x;
+			sumTT += t * t;
+			sumTX += t * x;
+			n++;
+		}
+		
+		final float denominator = n * sumTT - sumT * sumT;
+		
+		if(n < 2 || denominator == 0) {
+			return 0;
+		}
+		
+		return (n * sumTX - sumT * sumX) / denominator * 1000;
+	}
+
+}